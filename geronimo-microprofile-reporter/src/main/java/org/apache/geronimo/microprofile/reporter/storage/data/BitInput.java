@@ -0,0 +1,44 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+final class BitInput {
+    private final long[] words;
+    private int position;
+
+    BitInput(final long[] words) {
+        this.words = words;
+    }
+
+    boolean readBit() {
+        return readBits(1) == 1;
+    }
+
+    long readBits(final int bits) {
+        long value = 0;
+        int remaining = bits;
+        while (remaining > 0) {
+            final int available = 64 - (position & 63);
+            final int count = Math.min(remaining, available);
+            final long chunk = (words[position >>> 6] >>> (available - count)) & BitOutput.mask(count);
+            value = (value << count) | chunk; // count < 64 except for a full aligned word where value is 0
+            remaining -= count;
+            position += count;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import java.util.Arrays;
+
+// growable bit stream, most significant bits first
+final class BitOutput {
+    private long[] words;
+    private int size;
+
+    BitOutput(final int words) {
+        this.words = new long[Math.max(1, words)];
+    }
+
+    private BitOutput(final long[] words, final int size) {
+        this.words = words;
+        this.size = size;
+    }
+
+    void writeBit(final boolean bit) {
+        writeBits(bit ? 1 : 0, 1);
+    }
+
+    // writes the "bits" lowest bits of value
+    void writeBits(final long value, final int bits) {
+        int remaining = bits;
+        while (remaining > 0) {
+            final int index = size >>> 6;
+            if (index == words.length) {
+                words = Arrays.copyOf(words, words.length * 2);
+            }
+            final int free = 64 - (size & 63);
+            final int count = Math.min(remaining, free);
+            final long chunk = (value >>> (remaining - count)) & mask(count);
+            words[index] |= chunk << (free - count);
+            remaining -= count;
+            size += count;
+        }
+    }
+
+    // immutable copy sized to the written bits
+    BitOutput trim() {
+        return new BitOutput(Arrays.copyOf(words, (size + 63) >>> 6), size);
+    }
+
+    BitInput input() {
+        return new BitInput(words);
+    }
+
+    long bytes() {
+        return Long.BYTES * (long) words.length;
+    }
+
+    static long mask(final int bits) {
+        return bits == 64 ? -1L : (1L << bits) - 1;
+    }
+}
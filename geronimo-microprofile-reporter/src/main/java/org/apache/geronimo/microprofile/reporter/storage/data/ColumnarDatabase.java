@@ -0,0 +1,155 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import java.util.List;
+
+// composite values (snapshots) flavor of the database, each column can be read alone
+// and is rolled up in time buckets so long ranges can be read without the raw points
+public class ColumnarDatabase<T> extends InMemoryDatabase<T> {
+    private final ColumnarStorage<T> storage;
+    private final ColumnCodec<T> codec;
+    private final Resolutions resolutions;
+    private final Rollup[] rollups;
+
+    // change detection state, only written by the poller (a series is updated by a single task per poll)
+    private long lastStored; // epoch ms of the last point stored by addIfChanged, 0 if none
+    private volatile long lastChecked; // epoch ms of the last addIfChanged call, stored or not
+    private double[] lastColumns;
+
+    ColumnarDatabase(final ColumnarStorage<T> storage, final ColumnCodec<T> codec, final String unit,
+                     final Resolutions resolutions) {
+        super(storage, unit);
+        this.storage = storage;
+        this.codec = codec;
+        this.resolutions = resolutions;
+        this.rollups = resolutions.newRollups(codec.getColumns().size());
+        for (final Value<T> value : storage.snapshot()) { // reopened persistent series
+            for (final Rollup rollup : rollups) {
+                rollup.add(value.getTimestamp(), value.getValue(), codec);
+            }
+        }
+    }
+
+    @Override
+    public long bytes() {
+        long bytes = super.bytes();
+        for (final Rollup rollup : rollups) {
+            bytes += rollup.bytes();
+        }
+        return bytes;
+    }
+
+    public List<String> getColumns() {
+        return codec.getColumns();
+    }
+
+    public DoubleSeriesDatabase.Cursor cursor(final String column) {
+        return new DoubleSeriesDatabase.Cursor(storage.points(index(column)).iterator());
+    }
+
+    /**
+     * @return the bucket duration used to read [from, to], 0 means raw points.
+     */
+    public long getResolution(final long from, final long to) {
+        final Rollup rollup = resolutions.select(rollups, from, to);
+        return rollup == null ? 0 : rollup.getDuration();
+    }
+
+    // raw points when they are few enough for the range, else the aggregated values of the best rollup tier
+    public DoubleSeriesDatabase.Cursor cursor(final String column, final long from, final long to,
+                                              final Aggregation aggregation) {
+        final int index = index(column);
+        final Rollup rollup = resolutions.select(rollups, from, to);
+        if (rollup == null) {
+            return new DoubleSeriesDatabase.Cursor(storage.iterator(index, from, to));
+        }
+        return new DoubleSeriesDatabase.Cursor(rollup.points(index, aggregation, from, to).iterator());
+    }
+
+    @Override
+    void add(final long timestamp, final T value) {
+        super.add(timestamp, value);
+        for (final Rollup rollup : rollups) {
+            rollup.add(timestamp, value, codec);
+        }
+    }
+
+    // series are not weighted, it must still be rolled up
+    @Override
+    public void add(final T value, final double weight) {
+        add(value);
+    }
+
+    /**
+     * Stores the value only if one of its columns differs from the last stored value or if this one is older
+     * than heartbeat ms (zero or negative means never), an unchanged value is only remembered as checked.
+     *
+     * @return true if the value was stored.
+     */
+    public boolean addIfChanged(final T value, final long heartbeat) {
+        return addIfChanged(System.currentTimeMillis(), value, heartbeat);
+    }
+
+    boolean addIfChanged(final long now, final T value, final long heartbeat) {
+        final int columns = codec.getColumns().size();
+        boolean changed = lastColumns == null;
+        if (changed) {
+            lastColumns = new double[columns];
+        }
+        for (int i = 0; i < columns; i++) {
+            final double column = codec.getColumn(value, i);
+            if (Double.compare(column, lastColumns[i]) != 0) {
+                lastColumns[i] = column;
+                changed = true;
+            }
+        }
+        if (!check(now, heartbeat, changed)) {
+            return false;
+        }
+        add(now, value);
+        return true;
+    }
+
+    // the last value seen by addIfChanged is still current at this date (epoch ms), 0 if never called
+    public long getLastChecked() {
+        return lastChecked;
+    }
+
+    boolean check(final long now, final long heartbeat, final boolean changed) {
+        lastChecked = now;
+        if (changed || lastStored == 0 || (heartbeat > 0 && now - lastStored >= heartbeat)) {
+            lastStored = now;
+            return true;
+        }
+        return false;
+    }
+
+    void rollup(final long timestamp, final double value) {
+        for (final Rollup rollup : rollups) {
+            rollup.add(timestamp, value);
+        }
+    }
+
+    private int index(final String column) {
+        final int index = codec.getColumns().indexOf(column);
+        if (index < 0) {
+            throw new IllegalArgumentException("No column '" + column + "', available: " + codec.getColumns());
+        }
+        return index;
+    }
+}
@@ -0,0 +1,238 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import java.util.Arrays;
+
+// gorilla encoding (Facebook TSDB paper) of a block of points: delta of delta timestamps and xor-ed doubles.
+// timestamps and each column are separate bit streams so a single column is decoded alone.
+// a block is appended while it is the storage head, then it is frozen and never modified again
+final class CompressedBlock {
+    private final BitOutput timestamps;
+    private final BitOutput[] columns;
+
+    // encoder state
+    private final long[] previousValues;
+    private final int[] leadingZeros;
+    private final int[] trailingZeros;
+    private long previousTimestamp;
+    private long previousDelta;
+
+    private int size;
+    private long minTimestamp = Long.MAX_VALUE;
+    private long maxTimestamp = Long.MIN_VALUE;
+
+    CompressedBlock(final int columns, final int points) {
+        this.timestamps = new BitOutput(points / 4); // ~16 bits per timestamp at a regular polling
+        this.columns = new BitOutput[columns];
+        for (int i = 0; i < columns; i++) {
+            this.columns[i] = new BitOutput(points / 4);
+        }
+        this.previousValues = new long[columns];
+        this.leadingZeros = new int[columns];
+        this.trailingZeros = new int[columns];
+        Arrays.fill(leadingZeros, -1);
+    }
+
+    private CompressedBlock(final CompressedBlock block) {
+        this.timestamps = block.timestamps.trim();
+        this.columns = new BitOutput[block.columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            this.columns[i] = block.columns[i].trim();
+        }
+        this.previousValues = null;
+        this.leadingZeros = null;
+        this.trailingZeros = null;
+        this.size = block.size;
+        this.minTimestamp = block.minTimestamp;
+        this.maxTimestamp = block.maxTimestamp;
+    }
+
+    // a point is written with append(timestamp) then append(column, value) for each column
+    void append(final long timestamp) {
+        if (size == 0) {
+            timestamps.writeBits(timestamp, 64);
+        } else {
+            final long delta = timestamp - previousTimestamp;
+            final long deltaOfDelta = delta - previousDelta;
+            if (deltaOfDelta == 0) {
+                timestamps.writeBit(false);
+            } else if (deltaOfDelta >= -64 && deltaOfDelta < 64) {
+                timestamps.writeBits(0b10, 2);
+                timestamps.writeBits(deltaOfDelta, 7);
+            } else if (deltaOfDelta >= -256 && deltaOfDelta < 256) {
+                timestamps.writeBits(0b110, 3);
+                timestamps.writeBits(deltaOfDelta, 9);
+            } else if (deltaOfDelta >= -2048 && deltaOfDelta < 2048) {
+                timestamps.writeBits(0b1110, 4);
+                timestamps.writeBits(deltaOfDelta, 12);
+            } else {
+                timestamps.writeBits(0b1111, 4);
+                timestamps.writeBits(deltaOfDelta, 64);
+            }
+            previousDelta = delta;
+        }
+        previousTimestamp = timestamp;
+        minTimestamp = Math.min(minTimestamp, timestamp);
+        maxTimestamp = Math.max(maxTimestamp, timestamp);
+        size++;
+    }
+
+    void append(final int column, final double value) {
+        final BitOutput out = columns[column];
+        final long bits = Double.doubleToRawLongBits(value);
+        if (size == 1) {
+            out.writeBits(bits, 64);
+        } else {
+            final long xor = bits ^ previousValues[column];
+            if (xor == 0) {
+                out.writeBit(false);
+            } else {
+                out.writeBit(true);
+                final int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+                final int trailing = Long.numberOfTrailingZeros(xor);
+                if (leadingZeros[column] >= 0 && leading >= leadingZeros[column] && trailing >= trailingZeros[column]) {
+                    out.writeBit(false); // fits in the previous meaningful bits window
+                    out.writeBits(xor >>> trailingZeros[column], 64 - leadingZeros[column] - trailingZeros[column]);
+                } else {
+                    final int meaningful = 64 - leading - trailing;
+                    out.writeBit(true);
+                    out.writeBits(leading, 5);
+                    out.writeBits(meaningful - 1, 6);
+                    out.writeBits(xor >>> trailing, meaningful);
+                    leadingZeros[column] = leading;
+                    trailingZeros[column] = trailing;
+                }
+            }
+        }
+        previousValues[column] = bits;
+    }
+
+    CompressedBlock freeze() {
+        return new CompressedBlock(this);
+    }
+
+    int size() {
+        return size;
+    }
+
+    long getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    long bytes() {
+        long bytes = timestamps.bytes();
+        for (final BitOutput column : columns) {
+            bytes += column.bytes();
+        }
+        return bytes;
+    }
+
+    Reader reader(final int[] selection) {
+        return new Reader(selection);
+    }
+
+    // streaming decoder of the timestamps and the selected columns
+    final class Reader {
+        private final BitInput timestampInput = timestamps.input();
+        private final BitInput[] inputs;
+        private final long[] values;
+        private final int[] leading;
+        private final int[] trailing;
+        private long timestamp;
+        private long delta;
+        private int index;
+
+        private Reader(final int[] selection) {
+            this.inputs = new BitInput[selection.length];
+            for (int i = 0; i < selection.length; i++) {
+                inputs[i] = columns[selection[i]].input();
+            }
+            this.values = new long[selection.length];
+            this.leading = new int[selection.length];
+            this.trailing = new int[selection.length];
+        }
+
+        boolean next() {
+            if (index == size) {
+                return false;
+            }
+            readTimestamp();
+            for (int i = 0; i < inputs.length; i++) {
+                readValue(i);
+            }
+            index++;
+            return true;
+        }
+
+        long timestamp() {
+            return timestamp;
+        }
+
+        // index in the selection
+        double value(final int column) {
+            return Double.longBitsToDouble(values[column]);
+        }
+
+        private void readTimestamp() {
+            if (index == 0) {
+                timestamp = timestampInput.readBits(64);
+                return;
+            }
+            long deltaOfDelta = 0;
+            if (timestampInput.readBit()) {
+                final int bits;
+                if (!timestampInput.readBit()) {
+                    bits = 7;
+                } else if (!timestampInput.readBit()) {
+                    bits = 9;
+                } else if (!timestampInput.readBit()) {
+                    bits = 12;
+                } else {
+                    bits = 64;
+                }
+                deltaOfDelta = timestampInput.readBits(bits);
+                if (bits < 64) { // sign extension
+                    deltaOfDelta = (deltaOfDelta << (64 - bits)) >> (64 - bits);
+                }
+            }
+            delta += deltaOfDelta;
+            timestamp += delta;
+        }
+
+        private void readValue(final int column) {
+            final BitInput input = inputs[column];
+            if (index == 0) {
+                values[column] = input.readBits(64);
+                return;
+            }
+            if (!input.readBit()) {
+                return; // same value
+            }
+            if (input.readBit()) {
+                leading[column] = (int) input.readBits(5);
+                trailing[column] = 64 - leading[column] - ((int) input.readBits(6) + 1);
+            }
+            final int meaningful = 64 - leading[column] - trailing[column];
+            values[column] ^= input.readBits(meaningful) << trailing[column];
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// points are appended to a head block, frozen every "blockSize" points; the oldest frozen blocks are dropped
+// once the other blocks hold "capacity" points. regular polling makes most timestamps 1 or 9 bits and slowly
+// changing values a few bits so it is an order of magnitude smaller than the raw ring.
+// writes (one per poll) are serialized, reads decode immutable frozen blocks and a frozen copy of the head
+class CompressedStorage<T> implements ColumnarStorage<T> {
+    private static final CompressedBlock[] NO_BLOCK = new CompressedBlock[0];
+
+    private final ColumnCodec<T> codec;
+    private int capacity;
+    private final int blockSize;
+    private final int columns;
+    private final int[] allColumns;
+
+    private CompressedBlock[] frozen = NO_BLOCK;
+    private CompressedBlock head;
+    private int frozenPoints;
+    private long latestTimestamp;
+    private final double[] latestRow;
+
+    CompressedStorage(final int capacity, final int blockSize, final ColumnCodec<T> codec) {
+        this.codec = codec;
+        this.capacity = capacity;
+        this.blockSize = blockSize;
+        this.columns = codec.getColumns().size();
+        this.allColumns = IntStream.range(0, columns).toArray();
+        this.latestRow = new double[columns];
+    }
+
+    @Override
+    public synchronized void add(final long timestamp, final T value) {
+        head().append(timestamp);
+        for (int i = 0; i < columns; i++) {
+            final double column = codec.getColumn(value, i);
+            head.append(i, column);
+            latestRow[i] = column;
+        }
+        onAppend(timestamp);
+    }
+
+    // single column fast path
+    public synchronized void add(final long timestamp, final double value) {
+        head().append(timestamp);
+        head.append(0, value);
+        latestRow[0] = value;
+        onAppend(timestamp);
+    }
+
+    @Override
+    public LinkedList<InMemoryDatabase.Value<T>> snapshot() {
+        return toValues(blocks(), Long.MIN_VALUE, Long.MAX_VALUE, 0, new LinkedList<>());
+    }
+
+    @Override
+    public List<InMemoryDatabase.Value<T>> range(final long from, final long to) {
+        return toValues(blocks(), from, to, 0, new ArrayList<>());
+    }
+
+    @Override
+    public List<InMemoryDatabase.Value<T>> last(final int count) {
+        final CompressedBlock[] blocks = blocks();
+        final int size = Arrays.stream(blocks).mapToInt(CompressedBlock::size).sum();
+        return toValues(blocks, Long.MIN_VALUE, Long.MAX_VALUE, Math.max(0, size - count), new ArrayList<>());
+    }
+
+    @Override
+    public synchronized InMemoryDatabase.Value<T> latest() {
+        if (head == null && frozen.length == 0) {
+            return null;
+        }
+        return new InMemoryDatabase.Value<>(codec.decode(latestRow.clone()), latestTimestamp, 0);
+    }
+
+    @Override
+    public Points points(final int column) {
+        return points(column, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    @Override
+    public Points points(final int column, final long from, final long to) {
+        final CompressedBlock[] blocks = blocks();
+        final int size = Arrays.stream(blocks).mapToInt(CompressedBlock::size).sum();
+        final long[] timestamps = new long[size];
+        final double[] values = new double[size];
+        int count = 0;
+        final PointIterator iterator = new BlocksIterator(blocks, column, from, to);
+        while (iterator.next()) {
+            timestamps[count] = iterator.timestamp();
+            values[count++] = iterator.value();
+        }
+        return new Points(timestamps, values, 0, count);
+    }
+
+    // decodes while the caller reads, nothing is materialized
+    @Override
+    public PointIterator iterator(final int column, final long from, final long to) {
+        return new BlocksIterator(blocks(), column, from, to);
+    }
+
+    @Override
+    public synchronized long bytes() {
+        long bytes = head == null ? 0 : head.bytes();
+        for (final CompressedBlock block : frozen) {
+            bytes += block.bytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public synchronized int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public boolean isResizable() {
+        return true;
+    }
+
+    // a lower capacity drops the oldest frozen blocks, the head is never dropped so it can stay over the capacity
+    // by a block. a higher one only lets the next points accumulate
+    @Override
+    public synchronized boolean resize(final int capacity) {
+        if (capacity == this.capacity) {
+            return false;
+        }
+        final boolean grows = capacity > this.capacity;
+        this.capacity = capacity;
+        if (grows) {
+            return true;
+        }
+        final int pending = head == null ? 0 : head.size();
+        int drop = 0;
+        int remaining = frozenPoints + pending;
+        while (drop < frozen.length && remaining - frozen[drop].size() >= capacity) {
+            remaining -= frozen[drop++].size();
+        }
+        frozen = Arrays.copyOfRange(frozen, drop, frozen.length);
+        frozenPoints = remaining - pending;
+        return true;
+    }
+
+    private CompressedBlock head() {
+        if (head == null) {
+            head = new CompressedBlock(columns, blockSize);
+        }
+        return head;
+    }
+
+    private void onAppend(final long timestamp) {
+        latestTimestamp = timestamp;
+        if (head.size() < blockSize) {
+            return;
+        }
+        int drop = 0;
+        int remaining = frozenPoints + head.size();
+        while (drop < frozen.length && remaining - frozen[drop].size() >= capacity) {
+            remaining -= frozen[drop++].size();
+        }
+        final CompressedBlock[] blocks = Arrays.copyOfRange(frozen, drop, frozen.length + 1);
+        blocks[blocks.length - 1] = head.freeze();
+        frozen = blocks;
+        frozenPoints = remaining;
+        head = null;
+    }
+
+    // frozen blocks + a frozen copy of the head, oldest first
+    private synchronized CompressedBlock[] blocks() {
+        if (head == null) {
+            return frozen;
+        }
+        final CompressedBlock[] blocks = Arrays.copyOf(frozen, frozen.length + 1);
+        blocks[frozen.length] = head.freeze();
+        return blocks;
+    }
+
+    private <C extends List<InMemoryDatabase.Value<T>>> C toValues(final CompressedBlock[] blocks,
+                                                                   final long from, final long to,
+                                                                   final int skip, final C out) {
+        int index = 0;
+        for (final CompressedBlock block : blocks) {
+            if (index + block.size() <= skip || block.getMaxTimestamp() < from || block.getMinTimestamp() > to) {
+                index += block.size();
+                continue;
+            }
+            final CompressedBlock.Reader reader = block.reader(allColumns);
+            while (reader.next()) {
+                if (index++ < skip || reader.timestamp() < from || reader.timestamp() > to) {
+                    continue;
+                }
+                final double[] row = new double[columns];
+                for (int c = 0; c < columns; c++) {
+                    row[c] = reader.value(c);
+                }
+                out.add(new InMemoryDatabase.Value<>(codec.decode(row), reader.timestamp(), 0));
+            }
+        }
+        return out;
+    }
+
+    private static final class BlocksIterator implements PointIterator {
+        private final CompressedBlock[] blocks;
+        private final int[] selection;
+        private final long from;
+        private final long to;
+        private int block = -1;
+        private CompressedBlock.Reader reader;
+
+        private BlocksIterator(final CompressedBlock[] blocks, final int column, final long from, final long to) {
+            this.blocks = blocks;
+            this.selection = new int[]{column};
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean next() {
+            while (true) {
+                if (reader == null) {
+                    do {
+                        if (++block == blocks.length) {
+                            return false;
+                        }
+                    } while (blocks[block].getMaxTimestamp() < from || blocks[block].getMinTimestamp() > to);
+                    reader = blocks[block].reader(selection);
+                }
+                while (reader.next()) {
+                    if (reader.timestamp() >= from && reader.timestamp() <= to) {
+                        return true;
+                    }
+                }
+                reader = null;
+            }
+        }
+
+        @Override
+        public long timestamp() {
+            return reader.timestamp();
+        }
+
+        @Override
+        public double value() {
+            return reader.value(0);
+        }
+    }
+}
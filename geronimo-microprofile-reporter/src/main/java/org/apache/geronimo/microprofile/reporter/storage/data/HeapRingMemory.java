@@ -0,0 +1,73 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+final class HeapRingMemory implements RingMemory {
+    private final long[] timestamps;
+    private final double[][] columns;
+
+    HeapRingMemory(final int capacity, final int columns) {
+        this.timestamps = new long[capacity + 1];
+        this.columns = new double[columns][capacity + 1];
+    }
+
+    @Override
+    public int capacity() {
+        return timestamps.length - 1;
+    }
+
+    @Override
+    public long bytes() {
+        return MemorySize.array(timestamps.length, Long.BYTES) + MemorySize.array(columns.length, (int) MemorySize.REFERENCE)
+                + columns.length * MemorySize.array(timestamps.length, Double.BYTES);
+    }
+
+    @Override
+    public long published() {
+        return 0;
+    }
+
+    @Override
+    public void publish(final long count) {
+        // no-op
+    }
+
+    @Override
+    public long timestamp(final int slot) {
+        return timestamps[slot];
+    }
+
+    @Override
+    public void timestamp(final int slot, final long value) {
+        timestamps[slot] = value;
+    }
+
+    @Override
+    public void value(final int column, final int slot, final double value) {
+        columns[column][slot] = value;
+    }
+
+    @Override
+    public void copyTimestamps(final int slot, final long[] out, final int offset, final int length) {
+        System.arraycopy(timestamps, slot, out, offset, length);
+    }
+
+    @Override
+    public void copyValues(final int column, final int slot, final double[] out, final int offset, final int length) {
+        System.arraycopy(columns[column], slot, out, offset, length);
+    }
+}
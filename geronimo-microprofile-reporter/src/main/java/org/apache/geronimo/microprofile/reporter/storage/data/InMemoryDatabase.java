@@ -16,111 +16,90 @@
  */
 package org.apache.geronimo.microprofile.reporter.storage.data;
 
-import static java.util.stream.Collectors.toMap;
-
-import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
-import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-
-// copy of metrics Histogram impl
+import java.util.List;
+
 public class InMemoryDatabase<T> {
-    private static final long REFRESH_INTERVAL = TimeUnit.HOURS.toNanos(1);
+    // under it a series is not shrunk anymore to fit the memory budget
+    static final int MIN_POINTS = 16;
 
     private final String unit;
 
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
-
-    private final AtomicLong count = new AtomicLong();
-
-    private final AtomicLong nextRefreshTime = new AtomicLong(System.nanoTime() + REFRESH_INTERVAL);
-
-    private final double alpha;
-    private final int bucketSize;
-
-    private volatile long startTime = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
-
-    private final ConcurrentSkipListMap<Double, Value<T>> bucket = new ConcurrentSkipListMap<>();
+    private final Storage<T> storage;
 
     public InMemoryDatabase(final double alpha, final int bucketSize, final String unit) {
+        this(new ReservoirStorage<>(alpha, bucketSize), unit);
+    }
+
+    InMemoryDatabase(final Storage<T> storage, final String unit) {
         this.unit = unit;
-        this.alpha = alpha;
-        this.bucketSize = bucketSize;
+        this.storage = storage;
     }
 
     public String getUnit() {
         return unit;
     }
 
+    // all the values, oldest first
     public LinkedList<Value<T>> snapshot() {
-        ensureUpToDate();
-        final Lock lock = this.lock.readLock();
-        lock.lock();
-        try {
-            return new LinkedList<>(bucket.values());
-        } finally {
-            lock.unlock();
-        }
+        return storage.snapshot();
+    }
+
+    // values with a timestamp (epoch ms) in [from, to], oldest first
+    public List<Value<T>> range(final long from, final long to) {
+        return storage.range(from, to);
+    }
+
+    // values with a timestamp (epoch ms) in [from, to], most recent first
+    public Iterator<Value<T>> newestFirst(final long from, final long to) {
+        return storage.newestFirst(from, to);
+    }
+
+    // the "count" most recent values, oldest first
+    public List<Value<T>> last(final int count) {
+        return storage.last(count);
+    }
+
+    // last added value, null if there is none yet
+    public Value<T> latest() {
+        return storage.latest();
+    }
+
+    // estimated heap bytes
+    public long bytes() {
+        return storage.bytes();
+    }
+
+    int capacity() {
+        return storage.capacity();
+    }
+
+    void close() {
+        storage.close();
+    }
+
+    // heap bytes of the points a resize can release, rollups are not resized
+    long resizableBytes() {
+        return storage.isResizable() ? storage.bytes() : 0;
+    }
+
+    // lowering the capacity keeps the most valuable points (the most recent or highest priority ones)
+    boolean resize(final int capacity) {
+        return storage.resize(Math.max(MIN_POINTS, capacity));
     }
 
     public void add(final T value) {
-        ensureUpToDate();
-
-        final long now = System.currentTimeMillis();
-        final Lock lock = this.lock.readLock();
-        lock.lock();
-        try {
-            final Value<T> sample = new Value<>(value, now, Math.exp(alpha * (TimeUnit.MILLISECONDS.toSeconds(now) - startTime)));
-            final double priority = sample.weight / Math.random();
-
-            final long size = count.incrementAndGet();
-            if (size <= bucketSize) {
-                bucket.put(priority, sample);
-            } else { // iterate through the bucket until we need removing low priority entries to get a new space
-                double first = bucket.firstKey();
-                if (first < priority && bucket.putIfAbsent(priority, sample) == null) {
-                    while (bucket.remove(first) == null) {
-                        first = bucket.firstKey();
-                    }
-                }
-            }
-        } finally {
-            lock.unlock();
-        }
+        add(System.currentTimeMillis(), value);
     }
 
-    private void ensureUpToDate() {
-        final long next = nextRefreshTime.get();
-        final long now = System.nanoTime();
-        if (now < next) {
-            return;
-        }
+    void add(final long timestamp, final T value) {
+        storage.add(timestamp, value);
+    }
 
-        final Lock lock = this.lock.writeLock();
-        lock.lock();
-        try {
-            if (nextRefreshTime.compareAndSet(next, now + REFRESH_INTERVAL)) {
-                final long oldStartTime = startTime;
-                startTime = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
-                final double updateFactor = Math.exp(-alpha * (startTime - oldStartTime));
-                if (updateFactor != 0.) {
-                    bucket.putAll(new ArrayList<>(bucket.keySet()).stream().collect(toMap(k -> k * updateFactor, k -> {
-                        final Value<T> previous = bucket.remove(k);
-                        return new Value<>(previous.value, previous.timestamp, previous.weight * updateFactor);
-                    })));
-                    count.set(bucket.size()); // N keys can lead to the same key so we must update it
-                } else {
-                    bucket.clear();
-                    count.set(0);
-                }
-            }
-        } finally {
-            lock.unlock();
-        }
+    // a value "weight" times more likely to be kept by a sampling storage
+    public void add(final T value, final double weight) {
+        storage.add(System.currentTimeMillis(), value, weight);
     }
 
     public static final class Value<T> {
@@ -129,11 +108,11 @@ public class InMemoryDatabase<T> {
 
         private final long timestamp;
 
-        private final double weight;
+        private final double priority;
 
-        private Value(final T value, final long timestamp, final double weight) {
+        Value(final T value, final long timestamp, final double priority) {
             this.value = value;
-            this.weight = weight;
+            this.priority = priority;
             this.timestamp = timestamp;
         }
 
@@ -144,5 +123,9 @@ public class InMemoryDatabase<T> {
         public long getTimestamp() {
             return timestamp;
         }
+
+        double getPriority() {
+            return priority;
+        }
     }
 }
@@ -0,0 +1,53 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import java.util.List;
+
+// in memory ring whose points are also recorded in the write ahead log, starts with the compacted history
+class JournaledRingStorage<T> extends RingStorage<T> {
+    private final String series;
+    private final ColumnCodec<T> codec;
+    private final WriteAheadLog wal;
+
+    JournaledRingStorage(final int capacity, final ColumnCodec<T> codec, final String series,
+                         final WriteAheadLog wal, final List<InMemoryDatabase.Value<double[]>> history) {
+        super(capacity, codec);
+        this.series = series;
+        this.codec = codec;
+        this.wal = wal;
+        for (final InMemoryDatabase.Value<double[]> value : history) {
+            super.add(value.getTimestamp(), codec.decode(value.getValue()));
+        }
+    }
+
+    @Override
+    public void add(final long timestamp, final T value) {
+        super.add(timestamp, value);
+        final double[] row = new double[codec.getColumns().size()];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = codec.getColumn(value, i);
+        }
+        wal.record(series, timestamp, row);
+    }
+
+    @Override
+    public void add(final long timestamp, final double value) {
+        super.add(timestamp, value);
+        wal.record(series, timestamp, new double[]{value});
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+// counter flavor of the database, add(long) does not box with the ring engine
+public class LongSeriesDatabase extends ColumnarDatabase<Long> {
+    private final NumericStorage<Long> storage;
+    private long lastValue; // last value stored by addIfChanged
+
+    LongSeriesDatabase(final NumericStorage<Long> storage, final NumericCodec<Long> codec, final String unit,
+                       final Resolutions resolutions) {
+        super(storage, codec, unit, resolutions);
+        this.storage = storage;
+    }
+
+    public void add(final long value) {
+        add(System.currentTimeMillis(), value);
+    }
+
+    // see ColumnarDatabase#addIfChanged
+    public boolean addIfChanged(final long value, final long heartbeat) {
+        return addIfChanged(System.currentTimeMillis(), value, heartbeat);
+    }
+
+    boolean addIfChanged(final long now, final long value, final long heartbeat) {
+        if (!check(now, heartbeat, value != lastValue)) {
+            return false;
+        }
+        lastValue = value;
+        add(now, value);
+        return true;
+    }
+
+    private void add(final long now, final long value) {
+        storage.add(now, value);
+        rollup(now, value);
+    }
+
+    public Cursor cursor() {
+        return new Cursor(storage.points().iterator());
+    }
+
+    public static final class Cursor {
+        private final PointIterator iterator;
+
+        private Cursor(final PointIterator iterator) {
+            this.iterator = iterator;
+        }
+
+        public boolean next() {
+            return iterator.next();
+        }
+
+        public long getTimestamp() {
+            return iterator.timestamp();
+        }
+
+        public long getValue() {
+            return (long) iterator.value();
+        }
+    }
+}
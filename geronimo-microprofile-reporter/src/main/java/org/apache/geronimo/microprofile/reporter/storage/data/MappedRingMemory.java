@@ -0,0 +1,157 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// ring slots in a memory mapped file, off heap and surviving restarts:
+// header (magic, columns, capacity, published count), the timestamps then one region per column
+// (capacity + 1 slots each, see RingMemory).
+// the published count is written after the point so a reopened file only exposes complete points
+final class MappedRingMemory implements RingMemory {
+    private static final int MAGIC = 0x47524D32; // "GRM" + layout version, 2 added the spare slot
+    private static final int COLUMNS = 4;
+    private static final int CAPACITY = 8;
+    private static final int PUBLISHED = 16;
+    private static final int HEADER = 32;
+
+    private final int capacity;
+    private final int slots;
+    private final MappedByteBuffer buffer;
+    private final LongBuffer timestamps;
+    private final DoubleBuffer[] columns;
+
+    MappedRingMemory(final Path file, final int capacity, final int columns) {
+        final long size = HEADER + Long.BYTES * (capacity + 1L) * (columns + 1);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Can't map " + size + " bytes for " + file + ", reduce the storage size");
+        }
+        this.capacity = capacity;
+        this.slots = capacity + 1;
+        try {
+            Files.createDirectories(file.getParent());
+            try (final FileChannel channel = FileChannel.open(file, CREATE, READ, WRITE)) {
+                if (channel.size() > size) {
+                    channel.truncate(size);
+                }
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+        } catch (final IOException e) {
+            throw new IllegalStateException("Can't map " + file, e);
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(COLUMNS) != columns || buffer.getInt(CAPACITY) != capacity) {
+            // new file or another layout (storage size or codec changed), previous points can't be read
+            buffer.putLong(PUBLISHED, 0);
+            buffer.putInt(COLUMNS, columns);
+            buffer.putInt(CAPACITY, capacity);
+            buffer.putInt(0, MAGIC);
+        }
+        this.timestamps = region(HEADER).asLongBuffer();
+        this.columns = new DoubleBuffer[columns];
+        for (int i = 0; i < columns; i++) {
+            this.columns[i] = region(HEADER + Long.BYTES * slots * (i + 1)).asDoubleBuffer();
+        }
+    }
+
+    static Path file(final Path directory, final String series) {
+        try {
+            return directory.resolve(URLEncoder.encode(series, "UTF-8") + ".series");
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // writes the dirty pages to the disk, the OS does it anyway but lazily
+    void force() {
+        buffer.force();
+    }
+
+    // java 8 can't unmap explicitly, the mapping is released when the dropped series is collected
+    @Override
+    public void close() {
+        force();
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public long bytes() {
+        return 0; // page cache, not heap
+    }
+
+    @Override
+    public long published() {
+        return buffer.getLong(PUBLISHED);
+    }
+
+    @Override
+    public void publish(final long count) {
+        buffer.putLong(PUBLISHED, count);
+    }
+
+    @Override
+    public long timestamp(final int slot) {
+        return timestamps.get(slot);
+    }
+
+    @Override
+    public void timestamp(final int slot, final long value) {
+        timestamps.put(slot, value);
+    }
+
+    @Override
+    public void value(final int column, final int slot, final double value) {
+        columns[column].put(slot, value);
+    }
+
+    @Override
+    public void copyTimestamps(final int slot, final long[] out, final int offset, final int length) {
+        final LongBuffer view = timestamps.duplicate(); // relative bulk get, don't share the position
+        view.position(slot);
+        view.get(out, offset, length);
+    }
+
+    @Override
+    public void copyValues(final int column, final int slot, final double[] out, final int offset, final int length) {
+        final DoubleBuffer view = columns[column].duplicate();
+        view.position(slot);
+        view.get(out, offset, length);
+    }
+
+    private ByteBuffer region(final int offset) {
+        final ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.limit(offset + Long.BYTES * slots);
+        return view.slice();
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+// keeps the estimated heap of the stored data under "maxBytes" resizing the series which can be (reservoir and
+// compressed storages) relatively to the configured size, never from their current capacity so it does not compound.
+// only the resizable bytes are scaled: ring, mapped and wal series, the rollups and the span index can't shrink,
+// when they alone exceed the budget nothing is resized. once the data fits again the series grow back progressively
+final class MemoryBudget {
+    private static final Logger LOGGER = Logger.getLogger(MemoryBudget.class.getName());
+
+    // growing back targets this part of the budget so the series don't oscillate around it
+    private static final double LOW_WATERMARK = 0.9;
+
+    // a series at most doubles its capacity per enforcement, reservoirs still filling underestimate their bytes
+    private static final double MAX_GROWTH = 2;
+
+    private final long maxBytes;
+    private final int size;
+
+    private volatile double ratio = 1;
+    private boolean exceeded;
+
+    MemoryBudget(final long maxBytes, final int size) {
+        this.maxBytes = maxBytes;
+        this.size = size;
+    }
+
+    // part of the configured size the resizable series keep, also applied to the new series
+    double getRatio() {
+        return ratio;
+    }
+
+    int capacity() {
+        return Math.max(InMemoryDatabase.MIN_POINTS, (int) (size * ratio));
+    }
+
+    // used: estimated heap bytes of all the data, databases: the series to resize
+    synchronized void enforce(final long used, final Supplier<Stream<InMemoryDatabase<?>>> databases) {
+        final long resizable = databases.get().mapToLong(InMemoryDatabase::resizableBytes).sum();
+        final long fixed = used - resizable;
+        final double target;
+        if (used > maxBytes) {
+            if (resizable == 0 || fixed >= maxBytes) {
+                log(Level.WARNING, "Reporter storage uses ~" + used + " bytes for a budget of " + maxBytes + " but ~" + fixed +
+                        " bytes can't be resized (ring, mapped and wal series, rollups, span index), the budget can't be met" +
+                        ", increase geronimo.reporter.storage.maxBytes or lower geronimo.reporter.storage.size");
+                return;
+            }
+            target = ratio * (maxBytes - fixed) / resizable;
+        } else {
+            exceeded = false;
+            final double goal = maxBytes * LOW_WATERMARK - fixed;
+            if (ratio >= 1 || used >= maxBytes * LOW_WATERMARK || goal <= 0) {
+                return;
+            }
+            target = resizable == 0 ? 1 : Math.min(1, ratio * Math.min(MAX_GROWTH, goal / resizable));
+        }
+        final boolean shrinks = target < ratio;
+        ratio = target;
+        final int capacity = capacity();
+        databases.get().forEach(it -> it.resize(capacity));
+        if (shrinks) {
+            log(Level.WARNING, "Reporter storage uses ~" + used + " bytes for a budget of " + maxBytes +
+                    ", resized the series to " + capacity + " points");
+        } else if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Reporter storage uses ~" + used + " bytes for a budget of " + maxBytes +
+                    ", grew the series back to " + capacity + " points");
+        }
+    }
+
+    // only the first message of an exceeded budget is a warning, don't flood the logs each poll
+    private void log(final Level level, final String message) {
+        final Level actual = exceeded ? Level.FINE : level;
+        exceeded = true;
+        if (LOGGER.isLoggable(actual)) {
+            LOGGER.log(actual, message);
+        }
+    }
+}
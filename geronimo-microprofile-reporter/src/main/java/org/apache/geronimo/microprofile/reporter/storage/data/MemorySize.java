@@ -0,0 +1,67 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import java.util.Collection;
+import java.util.Map;
+
+// rough heap footprints for a 64 bits JVM with compressed oops, good enough to compare series and enforce a budget
+public final class MemorySize {
+    public static final long OBJECT = 16;
+    public static final long REFERENCE = 4;
+
+    // reservoir point: the Value (32), its boxed priority (16) and the nodes of the priority map and time index
+    static final long RESERVOIR_POINT = 128;
+
+    private MemorySize() {
+        // no-op
+    }
+
+    public static long of(final Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (Sized.class.isInstance(value)) {
+            return Sized.class.cast(value).bytes();
+        }
+        if (CharSequence.class.isInstance(value)) {
+            return 40 + 2L * CharSequence.class.cast(value).length(); // String + its char[]
+        }
+        if (Number.class.isInstance(value) || Boolean.class.isInstance(value) || Character.class.isInstance(value)) {
+            return OBJECT;
+        }
+        if (Map.class.isInstance(value)) {
+            long bytes = 64; // map and its table
+            for (final Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                bytes += 32 + of(entry.getKey()) + of(entry.getValue());
+            }
+            return bytes;
+        }
+        if (Collection.class.isInstance(value)) {
+            long bytes = 40;
+            for (final Object item : (Collection<?>) value) {
+                bytes += 16 + of(item);
+            }
+            return bytes;
+        }
+        return OBJECT;
+    }
+
+    public static long array(final int length, final int elementBytes) {
+        return OBJECT + (long) length * elementBytes;
+    }
+}
@@ -16,8 +16,20 @@
  */
 package org.apache.geronimo.microprofile.reporter.storage.data;
 
-import java.util.HashMap;
-import java.util.Map;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toList;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Stream;
 
 import javax.annotation.PostConstruct;
@@ -30,11 +42,14 @@ import org.apache.geronimo.microprofile.reporter.storage.plugins.health.CheckSna
 import org.apache.geronimo.microprofile.reporter.storage.plugins.metrics.MeterSnapshot;
 import org.apache.geronimo.microprofile.reporter.storage.plugins.metrics.SnapshotStat;
 import org.apache.geronimo.microprofile.reporter.storage.plugins.metrics.TimerSnapshot;
+import org.apache.geronimo.microprofile.reporter.storage.plugins.tracing.RedSnapshot;
 import org.apache.geronimo.microprofile.reporter.storage.plugins.tracing.SpanEntry;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 @ApplicationScoped
 public class MicroprofileDatabase {
+    private static final Logger LOGGER = Logger.getLogger(MicroprofileDatabase.class.getName());
+
     @Inject
     @ConfigProperty(name = "geronimo.reporter.storage.alpha", defaultValue = "0.015")
     private Double alpha;
@@ -43,17 +58,211 @@ public class MicroprofileDatabase {
     @ConfigProperty(name = "geronimo.reporter.storage.size", defaultValue = "43200" /*each 5s*/)
     private Integer bucketSize;
 
+    @Inject
+    @ConfigProperty(name = "geronimo.reporter.storage.engine", defaultValue = "reservoir")
+    private String engine;
+
+    @Inject
+    @ConfigProperty(name = "geronimo.reporter.storage.compressed.blockSize", defaultValue = "120")
+    private Integer blockSize;
+
+    @Inject
+    @ConfigProperty(name = "geronimo.reporter.storage.directory", defaultValue = "")
+    private String directory;
+
+    @Inject
+    @ConfigProperty(name = "geronimo.reporter.storage.rollups", defaultValue = "60000:1440,900000:672,3600000:720")
+    private String rollups;
+
+    @Inject
+    @ConfigProperty(name = "geronimo.reporter.storage.rollups.maxPoints", defaultValue = "1000")
+    private Integer maxPoints;
+
+    @Inject
+    @ConfigProperty(name = "geronimo.microprofile.reporter.polling.interval", defaultValue = "5000")
+    private Long pollingInterval;
+
+    @Inject
+    @ConfigProperty(name = "geronimo.reporter.storage.series.max", defaultValue = "1000")
+    private Integer maxSeries;
+
+    @Inject
+    @ConfigProperty(name = "geronimo.reporter.storage.series.idleTimeout", defaultValue = "3600000")
+    private Long idleTimeout;
+
+    @Inject
+    @ConfigProperty(name = "geronimo.reporter.storage.spans.stripes", defaultValue = "0")
+    private Integer spanStripes;
+
+    @Inject
+    @ConfigProperty(name = "geronimo.reporter.storage.maxBytes", defaultValue = "-1")
+    private Long maxBytes;
+
+    @Inject
+    @ConfigProperty(name = "geronimo.reporter.storage.wal.sync", defaultValue = "1000")
+    private Long walSyncInterval;
+
+    @Inject
+    @ConfigProperty(name = "geronimo.reporter.storage.wal.compaction.interval", defaultValue = "60000")
+    private Long compactionInterval;
+
+    private Resolutions resolutions;
+    private Path seriesDirectory;
+    private WriteAheadLog wal;
+    private WalCompactor compactor;
+    private ScheduledExecutorService compaction;
+    private MemoryBudget budget;
+
     private InMemoryDatabase<SpanEntry> spanDatabase;
-    private final Map<String, InMemoryDatabase<Long>> counters = new HashMap<>();
-    private final Map<String, InMemoryDatabase<Double>> gauges = new HashMap<>();
-    private final Map<String, InMemoryDatabase<SnapshotStat>> histograms = new HashMap<>();
-    private final Map<String, InMemoryDatabase<MeterSnapshot>> meters = new HashMap<>();
-    private final Map<String, InMemoryDatabase<TimerSnapshot>> timers = new HashMap<>();
-    private final Map<String, InMemoryDatabase<CheckSnapshot>> checks = new HashMap<>();
+    private SpanIndex spanIndex;
+    private SeriesRegistry<LongSeriesDatabase> counters;
+    private SeriesRegistry<DoubleSeriesDatabase> gauges;
+    private SeriesRegistry<ColumnarDatabase<SnapshotStat>> histograms;
+    private SeriesRegistry<ColumnarDatabase<MeterSnapshot>> meters;
+    private SeriesRegistry<ColumnarDatabase<TimerSnapshot>> timers;
+    private SeriesRegistry<ColumnarDatabase<CheckSnapshot>> checks;
+    private SeriesRegistry<ColumnarDatabase<RedSnapshot>> operations;
 
     @PostConstruct
     private void init() {
-        spanDatabase = new InMemoryDatabase<>(alpha, bucketSize,"none");
+        switch (engine) {
+            case "reservoir":
+            case "ring":
+                break;
+            case "compressed":
+                if (blockSize <= 0) {
+                    throw new IllegalArgumentException("Invalid compressed block size: " + blockSize);
+                }
+                break;
+            case "mapped":
+                seriesDirectory = seriesDirectory();
+                break;
+            case "wal":
+                seriesDirectory = seriesDirectory();
+                startWal();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown storage engine '" + engine + "', supported: reservoir, ring, compressed, mapped, wal");
+        }
+        if (maxSeries <= 0) {
+            throw new IllegalArgumentException("Invalid maximum series count: " + maxSeries);
+        }
+        resolutions = parseResolutions();
+        budget = new MemoryBudget(maxBytes, bucketSize);
+        // a dropped series releases its storage, mapped files are forced to the disk
+        counters = new SeriesRegistry<>("counters", maxSeries, idleTimeout, InMemoryDatabase::close);
+        gauges = new SeriesRegistry<>("gauges", maxSeries, idleTimeout, InMemoryDatabase::close);
+        histograms = new SeriesRegistry<>("histograms", maxSeries, idleTimeout, InMemoryDatabase::close);
+        meters = new SeriesRegistry<>("meters", maxSeries, idleTimeout, InMemoryDatabase::close);
+        timers = new SeriesRegistry<>("timers", maxSeries, idleTimeout, InMemoryDatabase::close);
+        checks = new SeriesRegistry<>("health checks", maxSeries, idleTimeout, InMemoryDatabase::close);
+        operations = new SeriesRegistry<>("operations", maxSeries, idleTimeout, InMemoryDatabase::close);
+        // spans are written by the request threads, other series by the poller
+        spanIndex = new SpanIndex();
+        spanDatabase = new InMemoryDatabase<>(new StripedReservoirStorage<>(alpha, capacity(),
+                spanStripes > 0 ? spanStripes : Runtime.getRuntime().availableProcessors(), MemorySize::of, spanIndex), "none");
+    }
+
+    private Path seriesDirectory() {
+        return directory.trim().isEmpty() ?
+                Paths.get(System.getProperty("java.io.tmpdir"), "geronimo-microprofile-reporter") :
+                Paths.get(directory.trim());
+    }
+
+    private void startWal() {
+        wal = new WriteAheadLog(seriesDirectory, walSyncInterval);
+        compactor = new WalCompactor(seriesDirectory, bucketSize, wal);
+        compactor.compact(); // what the previous run did not compact yet, series are loaded from the segments
+        if (compactionInterval > 0) {
+            compaction = Executors.newSingleThreadScheduledExecutor(r -> {
+                final Thread thread = new Thread(r, "geronimo-microprofile-reporter-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            compaction.scheduleWithFixedDelay(() -> {
+                try {
+                    compactor.compact();
+                } catch (final RuntimeException re) { // retry next time
+                    LOGGER.log(Level.WARNING, re.getMessage(), re);
+                }
+            }, compactionInterval, compactionInterval, MILLISECONDS);
+        }
+    }
+
+    // "<bucket duration in ms>:<number of buckets kept>" comma separated, finest first
+    private Resolutions parseResolutions() {
+        final String[] tiers = rollups.trim().isEmpty() ? new String[0] : rollups.split(",");
+        final long[] durations = new long[tiers.length];
+        final int[] capacities = new int[tiers.length];
+        for (int i = 0; i < tiers.length; i++) {
+            final String[] tier = tiers[i].trim().split(":");
+            if (tier.length != 2) {
+                throw new IllegalArgumentException("Invalid rollup '" + tiers[i] + "', expected <duration ms>:<buckets>");
+            }
+            durations[i] = Long.parseLong(tier[0].trim());
+            capacities[i] = Integer.parseInt(tier[1].trim());
+            if (durations[i] <= 0 || capacities[i] <= 0 || (i > 0 && durations[i] <= durations[i - 1])) {
+                throw new IllegalArgumentException("Invalid rollups '" + rollups + "', they must be positive and sorted");
+            }
+        }
+        final long rawResolution = Math.max(1, pollingInterval);
+        return new Resolutions(rawResolution, rawResolution * bucketSize, durations, capacities, maxPoints);
+    }
+
+    // the name identifies the series on disk with the mapped engine
+    public LongSeriesDatabase newCounterDatabase(final String name, final String unit) {
+        final NumericCodec<Long> codec = new NumericCodec<>(value -> (long) value);
+        return new LongSeriesDatabase(newNumericStorage(name, codec), codec, unit, resolutions);
+    }
+
+    public DoubleSeriesDatabase newGaugeDatabase(final String name, final String unit) {
+        final NumericCodec<Double> codec = new NumericCodec<>(Double::valueOf);
+        return new DoubleSeriesDatabase(newNumericStorage(name, codec), codec, unit, resolutions);
+    }
+
+    public <T> ColumnarDatabase<T> newColumnarDatabase(final String name, final String unit, final ColumnCodec<T> codec) {
+        final ColumnarStorage<T> storage;
+        switch (engine) {
+            case "ring":
+                storage = new RingStorage<>(capacity(), codec);
+                break;
+            case "compressed":
+                storage = new CompressedStorage<>(capacity(), blockSize, codec);
+                break;
+            case "mapped":
+                storage = new RingStorage<>(newMappedMemory(name, codec), codec);
+                break;
+            case "wal":
+                storage = new JournaledRingStorage<>(bucketSize, codec, name, wal, compactor.load(name, codec.getColumns().size()));
+                break;
+            default:
+                storage = new SampledColumnarStorage<>(alpha, capacity(), codec);
+        }
+        return new ColumnarDatabase<>(storage, codec, unit, resolutions);
+    }
+
+    private <T extends Number> NumericStorage<T> newNumericStorage(final String name, final NumericCodec<T> codec) {
+        switch (engine) {
+            case "ring":
+                return new NumericRingStorage<>(capacity(), codec);
+            case "compressed":
+                return new CompressedNumericStorage<>(capacity(), blockSize, codec);
+            case "mapped":
+                return new NumericRingStorage<>(newMappedMemory(name, codec), codec);
+            case "wal":
+                return new JournaledNumericRingStorage<>(bucketSize, codec, name, wal, compactor.load(name, 1));
+            default:
+                return new SampledNumericStorage<>(alpha, capacity(), codec);
+        }
+    }
+
+    // mapped and wal series keep "size" points, their files have a fixed layout
+    private int capacity() {
+        return budget.capacity();
+    }
+
+    private RingMemory newMappedMemory(final String name, final ColumnCodec<?> codec) {
+        return new MappedRingMemory(MappedRingMemory.file(seriesDirectory, name), bucketSize, codec.getColumns().size());
     }
 
     public Double getAlpha() {
@@ -64,35 +273,134 @@ public class MicroprofileDatabase {
         return bucketSize;
     }
 
+    public String getEngine() {
+        return engine;
+    }
+
+    public Long getMaxBytes() {
+        return maxBytes;
+    }
+
+    // estimated heap bytes of all the series
+    public long getBytes() {
+        return databases().mapToLong(InMemoryDatabase::bytes).sum() + spanIndex.bytes();
+    }
+
     public InMemoryDatabase<SpanEntry> getSpans() {
         return spanDatabase;
     }
 
-    public Map<String, InMemoryDatabase<Long>> getCounters() {
+    // the spans "getSpans()" keeps by span and trace identifiers
+    public SpanIndex getSpanIndex() {
+        return spanIndex;
+    }
+
+    // all the matching spans, unordered, for the aggregations
+    public List<SpanEntry> findSpans(final SpanQuery query) {
+        final Collection<InMemoryDatabase.Value<SpanEntry>> candidates = spanIndex.candidates(query);
+        return (candidates == null ? spanDatabase.range(query.getFrom(), query.getTo()) : candidates).stream()
+                .filter(query::matches)
+                .map(InMemoryDatabase.Value::getValue)
+                .collect(toList());
+    }
+
+    // a page of the matching spans, most recent first
+    public List<SpanEntry> findSpans(final SpanQuery query, final int offset, final int limit) {
+        return findSpans(spanDatabase, spanIndex, query, offset, limit);
+    }
+
+    // without indexed criteria the time window is walked newest first until "offset + limit" spans matched,
+    // else the smallest index view (unordered) goes through a bounded heap keeping the most recent matches
+    static List<SpanEntry> findSpans(final InMemoryDatabase<SpanEntry> spans, final SpanIndex index,
+                                     final SpanQuery query, final int offset, final int limit) {
+        final int max = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+        final Collection<InMemoryDatabase.Value<SpanEntry>> candidates = index.candidates(query);
+        final List<InMemoryDatabase.Value<SpanEntry>> top;
+        if (candidates == null) {
+            top = new ArrayList<>();
+            final Iterator<InMemoryDatabase.Value<SpanEntry>> iterator = spans.newestFirst(query.getFrom(), query.getTo());
+            while (top.size() < max && iterator.hasNext()) {
+                final InMemoryDatabase.Value<SpanEntry> value = iterator.next();
+                if (query.matches(value)) {
+                    top.add(value);
+                }
+            }
+        } else {
+            final PriorityQueue<InMemoryDatabase.Value<SpanEntry>> heap = new PriorityQueue<>(ReservoirStorage.TIME_ORDER); // oldest first
+            for (final InMemoryDatabase.Value<SpanEntry> value : candidates) {
+                if (query.matches(value)) {
+                    heap.add(value);
+                    if (heap.size() > max) {
+                        heap.poll();
+                    }
+                }
+            }
+            top = new ArrayList<>(heap);
+            top.sort(ReservoirStorage.TIME_ORDER.reversed());
+        }
+        return top.subList(Math.min(offset, top.size()), top.size()).stream()
+                .map(InMemoryDatabase.Value::getValue)
+                .collect(toList());
+    }
+
+    public SeriesRegistry<LongSeriesDatabase> getCounters() {
         return counters;
     }
 
-    public Map<String, InMemoryDatabase<Double>> getGauges() {
+    public SeriesRegistry<DoubleSeriesDatabase> getGauges() {
         return gauges;
     }
 
-    public Map<String, InMemoryDatabase<SnapshotStat>> getHistograms() {
+    public SeriesRegistry<ColumnarDatabase<SnapshotStat>> getHistograms() {
         return histograms;
     }
 
-    public Map<String, InMemoryDatabase<MeterSnapshot>> getMeters() {
+    public SeriesRegistry<ColumnarDatabase<MeterSnapshot>> getMeters() {
         return meters;
     }
 
-    public Map<String, InMemoryDatabase<TimerSnapshot>> getTimers() {
+    public SeriesRegistry<ColumnarDatabase<TimerSnapshot>> getTimers() {
         return timers;
     }
 
-    public Map<String, InMemoryDatabase<CheckSnapshot>> getChecks() {
+    public SeriesRegistry<ColumnarDatabase<CheckSnapshot>> getChecks() {
         return checks;
     }
 
+    // rate, errors and durations computed from the spans per "<kind>#<name>"
+    public SeriesRegistry<ColumnarDatabase<RedSnapshot>> getOperations() {
+        return operations;
+    }
+
+    // end of a poll: what it stored is journaled as one record with the wal engine
+    // and the series it did not update for too long are dropped
+    public void flush() {
+        if (wal != null) {
+            wal.commit();
+        }
+        final long now = System.currentTimeMillis();
+        Stream.of(counters, gauges, histograms, meters, timers, checks, operations).forEach(it -> it.evictIdle(now));
+        if (maxBytes > 0) {
+            budget.enforce(getBytes(), this::databases);
+        }
+    }
+
+    private Stream<InMemoryDatabase<?>> databases() {
+        return Stream.concat(
+                Stream.<SeriesRegistry<? extends InMemoryDatabase<?>>>of(counters, gauges, histograms, meters, timers, checks, operations)
+                        .flatMap(SeriesRegistry::stream),
+                Stream.of(spanDatabase));
+    }
+
     void onStop(@Observes @Destroyed(ApplicationScoped.class) final Object stop) {
-        Stream.of(counters, gauges, histograms, meters, timers).forEach(Map::clear);
+        if (wal != null) {
+            if (compaction != null) {
+                compaction.shutdownNow();
+            }
+            wal.commit();
+            compactor.compact();
+            compactor.close();
+        }
+        Stream.of(counters, gauges, histograms, meters, timers, checks, operations).forEach(SeriesRegistry::clear);
     }
 }
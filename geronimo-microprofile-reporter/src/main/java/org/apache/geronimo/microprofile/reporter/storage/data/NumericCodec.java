@@ -0,0 +1,51 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import static java.util.Collections.singletonList;
+
+import java.util.List;
+import java.util.function.DoubleFunction;
+
+class NumericCodec<T extends Number> implements ColumnCodec<T> {
+    private static final List<String> COLUMNS = singletonList("value");
+
+    private final DoubleFunction<T> decoder;
+
+    NumericCodec(final DoubleFunction<T> decoder) {
+        this.decoder = decoder;
+    }
+
+    @Override
+    public List<String> getColumns() {
+        return COLUMNS;
+    }
+
+    @Override
+    public double getColumn(final T value, final int index) {
+        return value.doubleValue();
+    }
+
+    @Override
+    public T decode(final double[] row) {
+        return decode(row[0]);
+    }
+
+    T decode(final double value) {
+        return decoder.apply(value);
+    }
+}
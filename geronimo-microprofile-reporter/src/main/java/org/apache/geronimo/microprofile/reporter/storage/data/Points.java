@@ -0,0 +1,65 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+// primitive copy of a column, points are the indices [from, to) of both arrays
+final class Points {
+    private final long[] timestamps;
+    private final double[] values;
+    private final int from;
+    private final int to;
+
+    Points(final long[] timestamps, final double[] values, final int from, final int to) {
+        this.timestamps = timestamps;
+        this.values = values;
+        this.from = from;
+        this.to = to;
+    }
+
+    int size() {
+        return to - from;
+    }
+
+    long timestamp(final int index) {
+        return timestamps[from + index];
+    }
+
+    double value(final int index) {
+        return values[from + index];
+    }
+
+    PointIterator iterator() {
+        return new PointIterator() {
+            private int index = from - 1;
+
+            @Override
+            public boolean next() {
+                return ++index < to;
+            }
+
+            @Override
+            public long timestamp() {
+                return timestamps[index];
+            }
+
+            @Override
+            public double value() {
+                return values[index];
+            }
+        };
+    }
+}
@@ -0,0 +1,211 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+// forward decaying reservoir (metrics Histogram impl) but priorities are kept as logarithms:
+// log(exp(alpha * (t - landmark)) / random) grows linearly with the time so it never overflows
+// and the landmark never needs to be moved, no hourly rescaling of the bucket blocking writers
+//
+// the kept values are also indexed by time so snapshots are time sorted without sorting them
+// and range/last queries only walk the matching values
+//
+// the bytes of the kept values are accounted on insertion/eviction so the footprint is known without walking them
+class ReservoirStorage<T> implements Storage<T> {
+    static final Comparator<InMemoryDatabase.Value<?>> TIME_ORDER =
+            Comparator.<InMemoryDatabase.Value<?>>comparingLong(InMemoryDatabase.Value::getTimestamp)
+                    .thenComparingDouble(InMemoryDatabase.Value::getPriority);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final double alpha;
+    private final ToLongFunction<? super T> sizer;
+    private final StorageListener<T> listener;
+    private volatile int bucketSize;
+
+    private final long landmark = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+
+    private final ConcurrentSkipListMap<Double, InMemoryDatabase.Value<T>> bucket = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListSet<InMemoryDatabase.Value<T>> timeIndex = new ConcurrentSkipListSet<>(TIME_ORDER);
+
+    private final LongAdder bytes = new LongAdder();
+
+    private volatile InMemoryDatabase.Value<T> latest;
+
+    ReservoirStorage(final double alpha, final int bucketSize) {
+        this(alpha, bucketSize, MemorySize::of);
+    }
+
+    ReservoirStorage(final double alpha, final int bucketSize, final ToLongFunction<? super T> sizer) {
+        this(alpha, bucketSize, sizer, StorageListener.none());
+    }
+
+    ReservoirStorage(final double alpha, final int bucketSize, final ToLongFunction<? super T> sizer,
+                     final StorageListener<T> listener) {
+        this.alpha = alpha;
+        this.bucketSize = bucketSize;
+        this.sizer = sizer;
+        this.listener = listener;
+    }
+
+    @Override
+    public long bytes() {
+        return bytes.sum();
+    }
+
+    @Override
+    public int capacity() {
+        return bucketSize;
+    }
+
+    @Override
+    public boolean isResizable() {
+        return true;
+    }
+
+    // a lower capacity evicts the lowest priorities, a higher one lets the next samples fill the bucket again
+    @Override
+    public synchronized boolean resize(final int capacity) {
+        if (capacity == bucketSize) {
+            return false;
+        }
+        bucketSize = capacity;
+        int kept = bucket.size();
+        Map.Entry<Double, InMemoryDatabase.Value<T>> lowest;
+        while (kept-- > capacity && (lowest = bucket.pollFirstEntry()) != null) {
+            evicted(lowest.getValue());
+        }
+        count.set(bucket.size()); // the count of all the adds would prevent a grown bucket to fill again
+        return true;
+    }
+
+    @Override
+    public LinkedList<InMemoryDatabase.Value<T>> snapshot() {
+        return new LinkedList<>(timeIndex);
+    }
+
+    @Override
+    public List<InMemoryDatabase.Value<T>> range(final long from, final long to) {
+        if (from > to) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(timeIndex.subSet(
+                bound(from, Double.NEGATIVE_INFINITY), true, bound(to, Double.POSITIVE_INFINITY), true));
+    }
+
+    // a view of the time index, weakly consistent with the concurrent adds
+    @Override
+    public Iterator<InMemoryDatabase.Value<T>> newestFirst(final long from, final long to) {
+        if (from > to) {
+            return Collections.emptyIterator();
+        }
+        return timeIndex.subSet(
+                bound(from, Double.NEGATIVE_INFINITY), true, bound(to, Double.POSITIVE_INFINITY), true).descendingIterator();
+    }
+
+    @Override
+    public List<InMemoryDatabase.Value<T>> last(final int count) {
+        final LinkedList<InMemoryDatabase.Value<T>> out = new LinkedList<>();
+        final Iterator<InMemoryDatabase.Value<T>> iterator = timeIndex.descendingIterator();
+        while (out.size() < count && iterator.hasNext()) {
+            out.addFirst(iterator.next());
+        }
+        return out;
+    }
+
+    // can be a value the reservoir did not keep since the sampling is random, it is still the last one seen
+    @Override
+    public InMemoryDatabase.Value<T> latest() {
+        return latest;
+    }
+
+    @Override
+    public void add(final long timestamp, final T value) {
+        add(timestamp, value, 1);
+    }
+
+    // weighted forward decay: the weight multiplies the priority so it is a log(weight) offset here
+    @Override
+    public void add(final long timestamp, final T value, final double weight) {
+        final double priority = alpha * (TimeUnit.MILLISECONDS.toSeconds(timestamp) - landmark) + Math.log(weight)
+                - Math.log(1 - ThreadLocalRandom.current().nextDouble());
+        final InMemoryDatabase.Value<T> sample = new InMemoryDatabase.Value<>(value, timestamp, priority);
+        final InMemoryDatabase.Value<T> previous = latest;
+        if (previous == null || previous.getTimestamp() <= timestamp) {
+            latest = sample;
+        }
+
+        final long size = count.incrementAndGet();
+        if (size <= bucketSize) {
+            if (!put(sample)) { // same priority, keep the count right
+                count.decrementAndGet();
+            }
+        } else { // iterate through the bucket until we need removing low priority entries to get a new space
+            double first = bucket.firstKey();
+            if (first < priority && put(sample)) {
+                InMemoryDatabase.Value<T> removed;
+                while ((removed = bucket.remove(first)) == null) {
+                    first = bucket.firstKey();
+                }
+                evicted(removed);
+            }
+        }
+    }
+
+    // indexed before being visible in the bucket so an eviction can't run before the indexing
+    private boolean put(final InMemoryDatabase.Value<T> sample) {
+        if (!timeIndex.add(sample)) { // same time and priority, already kept
+            return false;
+        }
+        listener.onAdd(sample);
+        if (bucket.putIfAbsent(sample.getPriority(), sample) != null) {
+            timeIndex.remove(sample);
+            listener.onRemove(sample);
+            return false;
+        }
+        bytes.add(bytes(sample));
+        return true;
+    }
+
+    private void evicted(final InMemoryDatabase.Value<T> value) {
+        timeIndex.remove(value);
+        bytes.add(-bytes(value));
+        listener.onRemove(value);
+    }
+
+    private long bytes(final InMemoryDatabase.Value<T> value) {
+        return MemorySize.RESERVOIR_POINT + sizer.applyAsLong(value.getValue());
+    }
+
+    private InMemoryDatabase.Value<T> bound(final long timestamp, final double priority) {
+        return new InMemoryDatabase.Value<>(null, timestamp, priority);
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+// the raw points and rollup tiers (finest first) a series can be read with
+final class Resolutions {
+    private final long rawResolution;
+    private final long rawRetention;
+    private final long[] durations;
+    private final int[] capacities;
+    private final int maxPoints;
+
+    Resolutions(final long rawResolution, final long rawRetention,
+                final long[] durations, final int[] capacities, final int maxPoints) {
+        this.rawResolution = rawResolution;
+        this.rawRetention = rawRetention;
+        this.durations = durations;
+        this.capacities = capacities;
+        this.maxPoints = maxPoints;
+    }
+
+    Rollup[] newRollups(final int columns) {
+        final Rollup[] rollups = new Rollup[durations.length];
+        for (int i = 0; i < rollups.length; i++) {
+            rollups[i] = new Rollup(durations[i], capacities[i], columns);
+        }
+        return rollups;
+    }
+
+    // finest resolution giving at most maxPoints and still retaining "from", null means raw points
+    Rollup select(final Rollup[] rollups, final long from, final long to) {
+        final long range = Math.max(0, to - from);
+        final long oldest = System.currentTimeMillis() - from;
+        if (rollups.length == 0 || (range / Math.max(1, rawResolution) <= maxPoints && oldest <= rawRetention)) {
+            return null;
+        }
+        for (final Rollup rollup : rollups) {
+            if (range / rollup.getDuration() <= maxPoints && oldest <= rollup.getRetention()) {
+                return rollup;
+            }
+        }
+        return rollups[rollups.length - 1];
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+// where a RingStorage keeps its slots: a timestamp and one value per column for each slot
+interface RingMemory {
+    // points kept, there is one more slot: the one the writer fills while readers copy the others
+    int capacity();
+
+    // how many points were published before this memory was opened
+    long published();
+
+    // called in publication order with the new number of published points
+    void publish(long count);
+
+    long timestamp(int slot);
+
+    void timestamp(int slot, long value);
+
+    void value(int column, int slot, double value);
+
+    void copyTimestamps(int slot, long[] out, int offset, int length);
+
+    void copyValues(int column, int slot, double[] out, int offset, int length);
+
+    // heap bytes, a mapped memory is off heap
+    long bytes();
+
+    // the series is dropped, writes what is not persisted yet
+    default void close() {
+        // no-op
+    }
+}
@@ -0,0 +1,202 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// keeps the last "capacity" points column by column in primitive arrays (or a mapped file), no per point allocation on add
+// points are in insertion order which is the time order so time ranges are binary searched.
+// a series has a single writer (the poll task of its source, a source never runs twice at the same time)
+// and concurrent readers: the writer fills the next slot then publishes it, readers only read published slots
+class RingStorage<T> implements ColumnarStorage<T> {
+    private final ColumnCodec<T> codec;
+    private final RingMemory memory;
+    private final int capacity;
+    private final int slots; // capacity + 1, the slot being written is never one readers can copy
+    private final int columns;
+    private final int[] allColumns;
+
+    private volatile long published; // slots readers can see, the writer fills the next one
+
+    RingStorage(final int capacity, final ColumnCodec<T> codec) {
+        this(new HeapRingMemory(capacity, codec.getColumns().size()), codec);
+    }
+
+    RingStorage(final RingMemory memory, final ColumnCodec<T> codec) {
+        this.memory = memory;
+        this.codec = codec;
+        this.capacity = memory.capacity();
+        this.slots = capacity + 1;
+        this.columns = codec.getColumns().size();
+        this.allColumns = IntStream.range(0, columns).toArray();
+        this.published = memory.published();
+    }
+
+    @Override
+    public void close() {
+        memory.close();
+    }
+
+    @Override
+    public void add(final long timestamp, final T value) {
+        final long index = published;
+        final int slot = (int) (index % slots);
+        memory.timestamp(slot, timestamp);
+        for (int i = 0; i < columns; i++) {
+            memory.value(i, slot, codec.getColumn(value, i));
+        }
+        publish(index);
+    }
+
+    // single column fast path
+    public void add(final long timestamp, final double value) {
+        final long index = published;
+        final int slot = (int) (index % slots);
+        memory.timestamp(slot, timestamp);
+        memory.value(0, slot, value);
+        publish(index);
+    }
+
+    @Override
+    public long bytes() {
+        return memory.bytes();
+    }
+
+    // slots are preallocated, resizing would not give memory back
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public LinkedList<InMemoryDatabase.Value<T>> snapshot() {
+        return toValues(copy(allColumns), new LinkedList<>());
+    }
+
+    @Override
+    public List<InMemoryDatabase.Value<T>> range(final long from, final long to) {
+        final Copy copy = copy(allColumns, from, to);
+        return toValues(copy, new ArrayList<>(copy.timestamps.length - copy.from));
+    }
+
+    @Override
+    public List<InMemoryDatabase.Value<T>> last(final int count) {
+        final long end = published;
+        final Copy copy = slice(allColumns, Math.max(Math.max(0, end - capacity), end - count), end);
+        return toValues(copy, new ArrayList<>(copy.timestamps.length - copy.from));
+    }
+
+    @Override
+    public InMemoryDatabase.Value<T> latest() {
+        final List<InMemoryDatabase.Value<T>> last = last(1);
+        return last.isEmpty() ? null : last.get(0);
+    }
+
+    @Override
+    public Points points(final int column) {
+        return toPoints(copy(new int[]{column}));
+    }
+
+    @Override
+    public Points points(final int column, final long from, final long to) {
+        return toPoints(copy(new int[]{column}, from, to));
+    }
+
+    private Points toPoints(final Copy copy) {
+        return new Points(copy.timestamps, copy.columns[0], copy.from, copy.timestamps.length);
+    }
+
+    private <C extends List<InMemoryDatabase.Value<T>>> C toValues(final Copy copy, final C out) {
+        for (int i = copy.from; i < copy.timestamps.length; i++) {
+            final double[] row = new double[columns];
+            for (int c = 0; c < row.length; c++) {
+                row[c] = copy.columns[c][i];
+            }
+            out.add(new InMemoryDatabase.Value<>(codec.decode(row), copy.timestamps[i], 0));
+        }
+        return out;
+    }
+
+    private void publish(final long index) {
+        memory.publish(index + 1);
+        published = index + 1;
+    }
+
+    private Copy copy(final int[] selection) {
+        final long end = published;
+        return slice(selection, Math.max(0, end - capacity), end);
+    }
+
+    private Copy copy(final int[] selection, final long from, final long to) {
+        final long end = published;
+        final long start = Math.max(0, end - capacity);
+        return slice(selection, search(start, end, from, true), search(start, end, to, false));
+    }
+
+    // first index of [start, end) with a timestamp after the bound (or equal to it when inclusive)
+    private long search(final long start, final long end, final long bound, final boolean inclusive) {
+        long low = start;
+        long high = end;
+        while (low < high) {
+            final long middle = (low + high) >>> 1;
+            final long timestamp = memory.timestamp((int) (middle % slots));
+            if (timestamp < bound || (!inclusive && timestamp == bound)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // copies the ring indices [start, end)
+    private Copy slice(final int[] selection, final long start, final long end) {
+        final int size = (int) Math.max(0, end - start);
+        final int first = (int) (start % slots);
+        final int head = Math.min(size, slots - first);
+
+        final long[] timestamps = new long[size];
+        memory.copyTimestamps(first, timestamps, 0, head);
+        memory.copyTimestamps(0, timestamps, head, size - head);
+        final double[][] columns = new double[selection.length][];
+        for (int c = 0; c < selection.length; c++) {
+            columns[c] = new double[size];
+            memory.copyValues(selection[c], first, columns[c], 0, head);
+            memory.copyValues(selection[c], 0, columns[c], head, size - head);
+        }
+
+        // the writer can have published points during the copy, each of them reused the slot of an old point
+        // (the slot it fills now is outside the copied window), skip the points older than the last "capacity" ones
+        final int from = (int) Math.min(size, Math.max(start, published - capacity) - start);
+        return new Copy(timestamps, columns, from);
+    }
+
+    private static final class Copy {
+        private final long[] timestamps;
+        private final double[][] columns;
+        private final int from;
+
+        private Copy(final long[] timestamps, final double[][] columns, final int from) {
+            this.timestamps = timestamps;
+            this.columns = columns;
+            this.from = from;
+        }
+    }
+}
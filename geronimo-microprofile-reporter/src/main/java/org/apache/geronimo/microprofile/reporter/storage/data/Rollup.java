@@ -0,0 +1,144 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import java.util.Arrays;
+
+// one tier of time buckets (min/max/sum/last/count per column) computed incrementally on add,
+// bucket "index" (timestamp / duration) lands in slot "index % capacity" so old buckets are just overwritten
+final class Rollup {
+    private final long duration;
+    private final int capacity;
+    private final long[] buckets;
+    private final long[] counts;
+    private final double[][] min;
+    private final double[][] max;
+    private final double[][] sum;
+    private final double[][] last;
+
+    private long latest = -1;
+
+    Rollup(final long duration, final int capacity, final int columns) {
+        this.duration = duration;
+        this.capacity = capacity;
+        this.buckets = new long[capacity];
+        this.counts = new long[capacity];
+        this.min = new double[columns][capacity];
+        this.max = new double[columns][capacity];
+        this.sum = new double[columns][capacity];
+        this.last = new double[columns][capacity];
+        Arrays.fill(buckets, -1);
+    }
+
+    long getDuration() {
+        return duration;
+    }
+
+    // 2 arrays + 4 per column
+    long bytes() {
+        return 2 * MemorySize.array(capacity, Long.BYTES) + 4 * min.length * MemorySize.array(capacity, Double.BYTES);
+    }
+
+    long getRetention() {
+        return duration * capacity;
+    }
+
+    synchronized void add(final long timestamp, final double value) {
+        final int slot = slot(timestamp);
+        if (slot >= 0) {
+            accumulate(0, slot, value);
+        }
+    }
+
+    synchronized <T> void add(final long timestamp, final T value, final ColumnCodec<T> codec) {
+        final int slot = slot(timestamp);
+        if (slot < 0) {
+            return;
+        }
+        for (int i = 0; i < sum.length; i++) {
+            accumulate(i, slot, codec.getColumn(value, i));
+        }
+    }
+
+    // one point per bucket overlapping [from, to], timestamped with the bucket start
+    synchronized Points points(final int column, final Aggregation aggregation, final long from, final long to) {
+        if (latest < 0) {
+            return new Points(new long[0], new double[0], 0, 0);
+        }
+        final long first = Math.max(Math.max(0, from / duration), latest - capacity + 1);
+        final long end = Math.min(to / duration, latest);
+        final int size = (int) Math.max(0, end - first + 1);
+        final long[] timestamps = new long[size];
+        final double[] values = new double[size];
+        int count = 0;
+        for (long bucket = first; bucket <= end; bucket++) {
+            final int slot = (int) (bucket % capacity);
+            if (buckets[slot] != bucket) { // no point in this bucket
+                continue;
+            }
+            timestamps[count] = bucket * duration;
+            values[count++] = value(column, slot, aggregation);
+        }
+        return new Points(timestamps, values, 0, count);
+    }
+
+    private double value(final int column, final int slot, final Aggregation aggregation) {
+        switch (aggregation) {
+            case MIN:
+                return min[column][slot];
+            case MAX:
+                return max[column][slot];
+            case AVG:
+                return sum[column][slot] / counts[slot];
+            case LAST:
+                return last[column][slot];
+            case COUNT:
+                return counts[slot];
+            default:
+                throw new IllegalArgumentException("Unsupported aggregation: " + aggregation);
+        }
+    }
+
+    private int slot(final long timestamp) {
+        final long bucket = timestamp / duration;
+        final int slot = (int) (bucket % capacity);
+        final long current = buckets[slot];
+        if (current == bucket) {
+            counts[slot]++;
+            return slot;
+        }
+        if (current > bucket) { // older than the retention
+            return -1;
+        }
+        buckets[slot] = bucket;
+        counts[slot] = 1;
+        for (int i = 0; i < sum.length; i++) {
+            min[i][slot] = Double.MAX_VALUE;
+            max[i][slot] = -Double.MAX_VALUE;
+            sum[i][slot] = 0;
+        }
+        latest = Math.max(latest, bucket);
+        return slot;
+    }
+
+    private void accumulate(final int column, final int slot, final double value) {
+        min[column][slot] = Math.min(min[column][slot], value);
+        max[column][slot] = Math.max(max[column][slot], value);
+        sum[column][slot] += value;
+        last[column][slot] = value;
+    }
+}
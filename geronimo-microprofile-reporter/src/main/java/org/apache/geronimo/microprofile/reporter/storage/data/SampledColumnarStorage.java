@@ -0,0 +1,50 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import java.util.Collection;
+
+// reservoir engine for columnar series, columns are extracted from the sampled values
+class SampledColumnarStorage<T> extends ReservoirStorage<T> implements ColumnarStorage<T> {
+    private final ColumnCodec<T> codec;
+
+    SampledColumnarStorage(final double alpha, final int bucketSize, final ColumnCodec<T> codec) {
+        super(alpha, bucketSize, value -> MemorySize.array(codec.getColumns().size(), Double.BYTES)); // about its fields
+        this.codec = codec;
+    }
+
+    @Override
+    public Points points(final int column) {
+        return toPoints(snapshot(), column);
+    }
+
+    @Override
+    public Points points(final int column, final long from, final long to) {
+        return toPoints(range(from, to), column);
+    }
+
+    private Points toPoints(final Collection<InMemoryDatabase.Value<T>> sample, final int column) {
+        final long[] timestamps = new long[sample.size()];
+        final double[] values = new double[sample.size()];
+        int i = 0;
+        for (final InMemoryDatabase.Value<T> value : sample) {
+            timestamps[i] = value.getTimestamp();
+            values[i++] = codec.getColumn(value.getValue(), column);
+        }
+        return new Points(timestamps, values, 0, i);
+    }
+}
@@ -0,0 +1,229 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Locale.ROOT;
+import static java.util.stream.Collectors.toList;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+// name -> series, written by the poller and read by the endpoints concurrently.
+// at most "maxSeries" series: when full the least recently updated one is replaced if it is idle
+// (not updated for "idleTimeout" ms) else the new series is rejected; idle series are also evicted each poll.
+// names are also kept in a sorted array, copied on creation/eviction only, so listings don't sort nor copy them
+public class SeriesRegistry<D> {
+    private static final Logger LOGGER = Logger.getLogger(SeriesRegistry.class.getName());
+
+    private final String type;
+    private final int maxSeries;
+    private final long idleTimeout;
+    private final Consumer<? super D> onRemove;
+    private final List<Consumer<String>> removalListeners = new CopyOnWriteArrayList<>();
+    private final Map<String, Entry<D>> series = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private volatile String[] index = new String[0];
+
+    SeriesRegistry(final String type, final int maxSeries, final long idleTimeout) {
+        this(type, maxSeries, idleTimeout, series -> {});
+    }
+
+    // onRemove is called once a series is evicted or cleared, it is no more reachable from the registry
+    SeriesRegistry(final String type, final int maxSeries, final long idleTimeout, final Consumer<? super D> onRemove) {
+        this.type = type;
+        this.maxSeries = maxSeries;
+        this.idleTimeout = idleTimeout;
+        this.onRemove = onRemove;
+    }
+
+    public D get(final String name) {
+        final Entry<D> entry = series.get(name);
+        return entry == null ? null : entry.series;
+    }
+
+    // sorted
+    public List<String> names() {
+        return unmodifiableList(asList(index));
+    }
+
+    // sorted names starting with prefix and containing (ignoring the case) "contains", null or empty matches all
+    public List<String> names(final String prefix, final String contains) {
+        final String[] names = index;
+        int from = 0;
+        int to = names.length;
+        if (prefix != null && !prefix.isEmpty()) {
+            final int position = Arrays.binarySearch(names, prefix);
+            from = position >= 0 ? position : -position - 1;
+            to = from;
+            while (to < names.length && names[to].startsWith(prefix)) {
+                to++;
+            }
+        }
+        final List<String> range = unmodifiableList(asList(names).subList(from, to));
+        if (contains == null || contains.isEmpty()) {
+            return range;
+        }
+        final String lowerCase = contains.toLowerCase(ROOT);
+        return range.stream().filter(it -> it.toLowerCase(ROOT).contains(lowerCase)).collect(toList());
+    }
+
+    // notified with the name of each evicted or cleared series, to drop what is cached per series
+    public void addRemovalListener(final Consumer<String> listener) {
+        removalListeners.add(listener);
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public Stream<D> stream() {
+        return series.values().stream().map(entry -> entry.series);
+    }
+
+    // series not created because the registry was full
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    // the series to update, null when it is a new one and the registry is full
+    public D getOrCreate(final String name, final Function<String, D> factory) {
+        final long now = System.currentTimeMillis();
+        Entry<D> entry = series.get(name);
+        if (entry == null) {
+            if (!reserve(now)) {
+                rejected.increment();
+                return null;
+            }
+            final Entry<D> created = new Entry<>(factory.apply(name), now); // not idle for a concurrent eviction
+            synchronized (this) {
+                entry = series.putIfAbsent(name, created);
+                if (entry == null) {
+                    index(name, true);
+                }
+            }
+            if (entry == null) {
+                entry = created;
+            } else { // concurrent creation, the losing series can hold resources (a mapping of the same file)
+                size.decrementAndGet();
+                onRemove.accept(created.series);
+            }
+        }
+        entry.lastUpdate = now;
+        return entry.series;
+    }
+
+    public void evictIdle(final long now) {
+        if (idleTimeout <= 0) {
+            return;
+        }
+        series.forEach((name, entry) -> {
+            if (now - entry.lastUpdate > idleTimeout) {
+                remove(name, entry);
+            }
+        });
+    }
+
+    public void clear() {
+        series.forEach(this::remove);
+    }
+
+    private boolean reserve(final long now) {
+        while (true) {
+            final int current = size.get();
+            if (current < maxSeries) {
+                if (size.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            } else if (!evictLeastRecentlyUpdated(now)) {
+                if (rejected.sum() == 0) {
+                    LOGGER.warning("More than " + maxSeries + " " + type + ", new ones are ignored until some become idle");
+                }
+                return false;
+            }
+        }
+    }
+
+    private boolean evictLeastRecentlyUpdated(final long now) {
+        if (idleTimeout <= 0) {
+            return false;
+        }
+        Map.Entry<String, Entry<D>> oldest = null;
+        for (final Map.Entry<String, Entry<D>> entry : series.entrySet()) {
+            if (oldest == null || entry.getValue().lastUpdate < oldest.getValue().lastUpdate) {
+                oldest = entry;
+            }
+        }
+        return oldest != null && now - oldest.getValue().lastUpdate > idleTimeout && remove(oldest.getKey(), oldest.getValue());
+    }
+
+    private boolean remove(final String name, final Entry<D> entry) {
+        synchronized (this) {
+            if (!series.remove(name, entry)) {
+                return false;
+            }
+            index(name, false);
+        }
+        size.decrementAndGet();
+        onRemove.accept(entry.series);
+        removalListeners.forEach(it -> it.accept(name));
+        return true;
+    }
+
+    // called with the registry lock held so the index follows the map changes in the same order
+    private void index(final String name, final boolean add) {
+        final String[] names = index;
+        final int position = Arrays.binarySearch(names, name);
+        if (add == position >= 0) { // already up to date
+            return;
+        }
+        final String[] updated;
+        if (add) {
+            final int insertion = -position - 1;
+            updated = new String[names.length + 1];
+            System.arraycopy(names, 0, updated, 0, insertion);
+            updated[insertion] = name;
+            System.arraycopy(names, insertion, updated, insertion + 1, names.length - insertion);
+        } else {
+            updated = new String[names.length - 1];
+            System.arraycopy(names, 0, updated, 0, position);
+            System.arraycopy(names, position + 1, updated, position, names.length - position - 1);
+        }
+        index = updated;
+    }
+
+    private static final class Entry<D> {
+        private final D series;
+        private volatile long lastUpdate;
+
+        private Entry(final D series, final long lastUpdate) {
+            this.series = series;
+            this.lastUpdate = lastUpdate;
+        }
+    }
+}
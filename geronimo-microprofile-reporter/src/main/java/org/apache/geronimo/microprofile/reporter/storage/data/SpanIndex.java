@@ -0,0 +1,221 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableSet;
+import static java.util.Locale.ROOT;
+import static java.util.stream.Collectors.toList;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.apache.geronimo.microprofile.reporter.storage.plugins.tracing.SpanEntry;
+
+// spans kept by the span storage by span and trace identifiers, name, kind, duration (power of 2 buckets) and tags
+// (short values only, long ones are urls, statements... which are rarely searched by equality), it follows
+// the storage evictions so it never references a span the storage dropped
+public class SpanIndex implements StorageListener<SpanEntry> {
+    static final int MAX_INDEXED_TAG_VALUE = 32;
+
+    private static final long NODE = 40; // hash map or set entry
+    private static final long SET = 96; // concurrent set and its table
+
+    private final Map<String, SpanEntry> bySpanId = new ConcurrentHashMap<>();
+    private final Map<String, Set<InMemoryDatabase.Value<SpanEntry>>> byTraceId = new ConcurrentHashMap<>();
+    private final Map<String, Set<InMemoryDatabase.Value<SpanEntry>>> byName = new ConcurrentHashMap<>();
+    private final Map<String, Set<InMemoryDatabase.Value<SpanEntry>>> byKind = new ConcurrentHashMap<>(); // lower case
+    private final Map<Integer, Set<InMemoryDatabase.Value<SpanEntry>>> byDuration = new ConcurrentHashMap<>();
+    private final Map<String, Set<InMemoryDatabase.Value<SpanEntry>>> byTag = new ConcurrentHashMap<>(); // "key=value"
+    private final LongAdder keyBytes = new LongAdder(); // spans keep numeric identifiers, keys are strings built for the index
+    private final LongAdder entries = new LongAdder();
+    private final LongAdder sets = new LongAdder();
+
+    public SpanEntry span(final String spanId) {
+        return spanId == null ? null : bySpanId.get(spanId);
+    }
+
+    // unordered
+    public Collection<SpanEntry> trace(final String traceId) {
+        final Set<InMemoryDatabase.Value<SpanEntry>> spans = traceId == null ? null : byTraceId.get(traceId);
+        return spans == null ? emptyList() : spans.stream().map(InMemoryDatabase.Value::getValue).collect(toList());
+    }
+
+    // unordered views, stored points so the storage timestamp is available
+    public Collection<InMemoryDatabase.Value<SpanEntry>> byName(final String name) {
+        return view(byName.get(name));
+    }
+
+    public Collection<InMemoryDatabase.Value<SpanEntry>> byKind(final String kind) {
+        return view(byKind.get(kind.toLowerCase(ROOT)));
+    }
+
+    // the spans of the buckets overlapping [min, max] (microseconds), they still have to be filtered
+    public Collection<InMemoryDatabase.Value<SpanEntry>> byDuration(final long min, final long max) {
+        final List<Set<InMemoryDatabase.Value<SpanEntry>>> buckets = new ArrayList<>();
+        for (int bucket = bucket(min); bucket <= bucket(max); bucket++) {
+            final Set<InMemoryDatabase.Value<SpanEntry>> spans = byDuration.get(bucket);
+            if (spans != null) {
+                buckets.add(spans);
+            }
+        }
+        return new AbstractCollection<InMemoryDatabase.Value<SpanEntry>>() {
+            @Override
+            public Iterator<InMemoryDatabase.Value<SpanEntry>> iterator() {
+                return buckets.stream().flatMap(Set::stream).iterator();
+            }
+
+            @Override
+            public int size() {
+                return buckets.stream().mapToInt(Set::size).sum();
+            }
+        };
+    }
+
+    // null when the value is too long to be indexed
+    public Collection<InMemoryDatabase.Value<SpanEntry>> byTag(final String key, final String value) {
+        return value.length() > MAX_INDEXED_TAG_VALUE ? null : view(byTag.get(key + '=' + value));
+    }
+
+    // the smallest index view matching one of the criteria of the query, null if it has no indexed criterion
+    public Collection<InMemoryDatabase.Value<SpanEntry>> candidates(final SpanQuery query) {
+        Collection<InMemoryDatabase.Value<SpanEntry>> candidates = null;
+        if (query.getName() != null) {
+            candidates = byName(query.getName());
+        }
+        if (query.getKind() != null) {
+            candidates = smallest(candidates, byKind(query.getKind()));
+        }
+        if (query.getTagKey() != null && query.getTagValue() != null) {
+            candidates = smallest(candidates, byTag(query.getTagKey(), query.getTagValue()));
+        }
+        if (query.getMinDuration() > 0 || query.getMaxDuration() < Long.MAX_VALUE) {
+            candidates = smallest(candidates, byDuration(query.getMinDuration(), query.getMaxDuration()));
+        }
+        return candidates;
+    }
+
+    public int size() {
+        return bySpanId.size();
+    }
+
+    long bytes() {
+        return (size() + entries.sum()) * NODE + sets.sum() * SET + keyBytes.sum();
+    }
+
+    @Override
+    public void onAdd(final InMemoryDatabase.Value<SpanEntry> value) {
+        final SpanEntry span = value.getValue();
+        final String spanId = span.getSpanId();
+        if (spanId != null && bySpanId.put(spanId, span) == null) {
+            keyBytes.add(MemorySize.of(spanId));
+        }
+        add(byTraceId, span.getTraceId(), value);
+        add(byName, span.getName(), value);
+        add(byKind, span.getKind() == null ? null : span.getKind().toLowerCase(ROOT), value);
+        add(byDuration, bucket(span.getDuration()), value);
+        forEachIndexedTag(span, tag -> add(byTag, tag, value));
+    }
+
+    @Override
+    public void onRemove(final InMemoryDatabase.Value<SpanEntry> value) {
+        final SpanEntry span = value.getValue();
+        final String spanId = span.getSpanId();
+        if (spanId != null && bySpanId.remove(spanId, span)) {
+            keyBytes.add(-MemorySize.of(spanId));
+        }
+        remove(byTraceId, span.getTraceId(), value);
+        remove(byName, span.getName(), value);
+        remove(byKind, span.getKind() == null ? null : span.getKind().toLowerCase(ROOT), value);
+        remove(byDuration, bucket(span.getDuration()), value);
+        forEachIndexedTag(span, tag -> remove(byTag, tag, value));
+    }
+
+    private void forEachIndexedTag(final SpanEntry span, final Consumer<String> consumer) {
+        for (final Map.Entry<String, Object> tag : span.getTags().entrySet()) {
+            if (tag.getValue() == null) {
+                continue;
+            }
+            final String value = String.valueOf(tag.getValue());
+            if (value.length() <= MAX_INDEXED_TAG_VALUE) {
+                consumer.accept(tag.getKey() + '=' + value);
+            }
+        }
+    }
+
+    // in compute to not race with the removal of the last span of the key
+    private <K> void add(final Map<K, Set<InMemoryDatabase.Value<SpanEntry>>> index, final K key,
+                     final InMemoryDatabase.Value<SpanEntry> value) {
+        if (key == null) {
+            return;
+        }
+        index.compute(key, (k, spans) -> {
+            final Set<InMemoryDatabase.Value<SpanEntry>> set;
+            if (spans == null) {
+                set = ConcurrentHashMap.newKeySet();
+                keyBytes.add(MemorySize.of(k));
+                sets.increment();
+            } else {
+                set = spans;
+            }
+            if (set.add(value)) {
+                entries.increment();
+            }
+            return set;
+        });
+    }
+
+    private <K> void remove(final Map<K, Set<InMemoryDatabase.Value<SpanEntry>>> index, final K key,
+                        final InMemoryDatabase.Value<SpanEntry> value) {
+        if (key == null) {
+            return;
+        }
+        index.computeIfPresent(key, (k, spans) -> {
+            if (spans.remove(value)) {
+                entries.decrement();
+            }
+            if (spans.isEmpty()) {
+                keyBytes.add(-MemorySize.of(k));
+                sets.decrement();
+                return null;
+            }
+            return spans;
+        });
+    }
+
+    // bucket b > 0 holds the durations in [2^(b-1), 2^b), 0 the null ones
+    private static int bucket(final long duration) {
+        return duration <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(duration);
+    }
+
+    private static Collection<InMemoryDatabase.Value<SpanEntry>> smallest(final Collection<InMemoryDatabase.Value<SpanEntry>> current,
+                                                                     final Collection<InMemoryDatabase.Value<SpanEntry>> other) {
+        return other != null && (current == null || other.size() < current.size()) ? other : current;
+    }
+
+    private static Collection<InMemoryDatabase.Value<SpanEntry>> view(final Set<InMemoryDatabase.Value<SpanEntry>> spans) {
+        return spans == null ? emptyList() : unmodifiableSet(spans);
+    }
+}
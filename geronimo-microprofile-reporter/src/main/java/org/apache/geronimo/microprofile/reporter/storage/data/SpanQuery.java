@@ -0,0 +1,108 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import org.apache.geronimo.microprofile.reporter.storage.plugins.tracing.SpanEntry;
+
+// null or empty criteria match everything, durations are in microseconds like the spans
+// and the time window is on the storage timestamp (epoch ms) like the other series
+public class SpanQuery {
+    private final String name;
+    private final String kind;
+    private final String tagKey;
+    private final String tagValue;
+    private final long minDuration;
+    private final long maxDuration;
+    private final long from;
+    private final long to;
+
+    // "tag" is "key=value" or only "key" to match the spans having the tag whatever its value
+    public SpanQuery(final String name, final String kind, final String tag,
+                     final Long minDuration, final Long maxDuration, final long from, final long to) {
+        this.name = emptyToNull(name);
+        this.kind = emptyToNull(kind);
+        final String tagSpec = emptyToNull(tag);
+        final int sep = tagSpec == null ? -1 : tagSpec.indexOf('=');
+        this.tagKey = sep < 0 ? tagSpec : tagSpec.substring(0, sep);
+        this.tagValue = sep < 0 ? null : tagSpec.substring(sep + 1);
+        this.minDuration = minDuration == null ? 0 : minDuration;
+        this.maxDuration = maxDuration == null ? Long.MAX_VALUE : maxDuration;
+        this.from = from;
+        this.to = to;
+        if (this.minDuration > this.maxDuration || from > to) {
+            throw new IllegalArgumentException("Invalid span query, duration=[" + minDuration + ", " + maxDuration + "]" +
+                    ", time=[" + from + ", " + to + "]");
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public String getTagKey() {
+        return tagKey;
+    }
+
+    public String getTagValue() {
+        return tagValue;
+    }
+
+    public long getMinDuration() {
+        return minDuration;
+    }
+
+    public long getMaxDuration() {
+        return maxDuration;
+    }
+
+    public long getFrom() {
+        return from;
+    }
+
+    public long getTo() {
+        return to;
+    }
+
+    public boolean matches(final InMemoryDatabase.Value<SpanEntry> value) {
+        if (value.getTimestamp() < from || value.getTimestamp() > to) {
+            return false;
+        }
+        final SpanEntry span = value.getValue();
+        if (span.getDuration() < minDuration || span.getDuration() > maxDuration) {
+            return false;
+        }
+        if (name != null && !name.equals(span.getName())) {
+            return false;
+        }
+        if (kind != null && !kind.equalsIgnoreCase(span.getKind())) {
+            return false;
+        }
+        if (tagKey != null) {
+            final Object tag = span.getTags().get(tagKey);
+            return tag != null && (tagValue == null || tagValue.equals(String.valueOf(tag)));
+        }
+        return true;
+    }
+
+    private static String emptyToNull(final String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+
+// how an InMemoryDatabase actually keeps its points
+interface Storage<T> {
+    void add(long timestamp, T value);
+
+    // "weight" times more likely to be kept than a value of the same time, only sampling storages use it
+    default void add(final long timestamp, final T value, final double weight) {
+        add(timestamp, value);
+    }
+
+    // all the values, oldest first
+    LinkedList<InMemoryDatabase.Value<T>> snapshot();
+
+    // values with a timestamp in [from, to], oldest first
+    List<InMemoryDatabase.Value<T>> range(long from, long to);
+
+    // values with a timestamp in [from, to], most recent first, read lazily when the storage can so a search can stop early
+    default Iterator<InMemoryDatabase.Value<T>> newestFirst(final long from, final long to) {
+        final List<InMemoryDatabase.Value<T>> range = range(from, to);
+        final ListIterator<InMemoryDatabase.Value<T>> iterator = range.listIterator(range.size());
+        return new Iterator<InMemoryDatabase.Value<T>>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasPrevious();
+            }
+
+            @Override
+            public InMemoryDatabase.Value<T> next() {
+                return iterator.previous();
+            }
+        };
+    }
+
+    // the "count" most recent values, oldest first
+    List<InMemoryDatabase.Value<T>> last(int count);
+
+    // most recently added value or null
+    InMemoryDatabase.Value<T> latest();
+
+    // estimated heap bytes used by the kept points
+    long bytes();
+
+    // how many points are kept at most
+    int capacity();
+
+    // changes the capacity, dropping the points exceeding it when it is lowered, false when it did not change
+    // or the storage can't be resized
+    default boolean resize(final int capacity) {
+        return false;
+    }
+
+    // ring based storages preallocate their points so they can't be resized
+    default boolean isResizable() {
+        return false;
+    }
+
+    // the series is dropped (evicted or the application stops), releases what the storage holds
+    default void close() {
+        // no-op
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+// notified of the values a storage starts and stops keeping so a secondary index can follow the evictions,
+// a value is always added before being removed
+interface StorageListener<T> {
+    StorageListener<Object> NONE = new StorageListener<Object>() {
+        @Override
+        public void onAdd(final InMemoryDatabase.Value<Object> value) {
+            // no-op
+        }
+
+        @Override
+        public void onRemove(final InMemoryDatabase.Value<Object> value) {
+            // no-op
+        }
+    };
+
+    void onAdd(InMemoryDatabase.Value<T> value);
+
+    void onRemove(InMemoryDatabase.Value<T> value);
+
+    @SuppressWarnings("unchecked")
+    static <T> StorageListener<T> none() {
+        return (StorageListener<T>) (StorageListener<?>) NONE;
+    }
+}
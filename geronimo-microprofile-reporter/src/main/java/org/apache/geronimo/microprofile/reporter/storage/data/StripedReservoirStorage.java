@@ -0,0 +1,202 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+// reservoir split in independent shards randomly picked on each add so concurrent writers (request threads
+// finishing spans) rarely contend on the same counter and skip lists, reads merge the time sorted shards.
+// each shard gets a uniform part of the values (whatever the thread writing them, even a single one)
+// and keeps its top priorities so together they approximate a single reservoir
+class StripedReservoirStorage<T> implements Storage<T> {
+    private final ReservoirStorage<T>[] shards;
+    private final int mask;
+
+    StripedReservoirStorage(final double alpha, final int bucketSize, final int stripes,
+                            final ToLongFunction<? super T> sizer) {
+        this(alpha, bucketSize, stripes, sizer, StorageListener.none());
+    }
+
+    StripedReservoirStorage(final double alpha, final int bucketSize, final int stripes,
+                            final ToLongFunction<? super T> sizer, final StorageListener<T> listener) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Invalid stripe count: " + stripes);
+        }
+        final int count = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1; // power of 2 to mask the random shard index
+        final int shardSize = Math.max(1, (bucketSize + count - 1) / count);
+        this.shards = newShards(count);
+        for (int i = 0; i < count; i++) {
+            shards[i] = new ReservoirStorage<>(alpha, shardSize, sizer, listener);
+        }
+        this.mask = count - 1;
+    }
+
+    @Override
+    public void add(final long timestamp, final T value) {
+        shard().add(timestamp, value);
+    }
+
+    @Override
+    public void add(final long timestamp, final T value, final double weight) {
+        shard().add(timestamp, value, weight);
+    }
+
+    @Override
+    public LinkedList<InMemoryDatabase.Value<T>> snapshot() {
+        return merge(ReservoirStorage::snapshot, new LinkedList<>());
+    }
+
+    @Override
+    public List<InMemoryDatabase.Value<T>> range(final long from, final long to) {
+        return merge(shard -> shard.range(from, to), new ArrayList<>());
+    }
+
+    @Override
+    public Iterator<InMemoryDatabase.Value<T>> newestFirst(final long from, final long to) {
+        return new Merge<>(shards, shard -> shard.newestFirst(from, to), ReservoirStorage.TIME_ORDER.reversed());
+    }
+
+    @Override
+    public List<InMemoryDatabase.Value<T>> last(final int count) {
+        final List<InMemoryDatabase.Value<T>> merged = merge(shard -> shard.last(count), new ArrayList<>());
+        return merged.size() <= count ? merged : new ArrayList<>(merged.subList(merged.size() - count, merged.size()));
+    }
+
+    @Override
+    public InMemoryDatabase.Value<T> latest() {
+        InMemoryDatabase.Value<T> latest = null;
+        for (final ReservoirStorage<T> shard : shards) {
+            final InMemoryDatabase.Value<T> value = shard.latest();
+            if (value != null && (latest == null || latest.getTimestamp() < value.getTimestamp())) {
+                latest = value;
+            }
+        }
+        return latest;
+    }
+
+    @Override
+    public long bytes() {
+        long bytes = 0;
+        for (final ReservoirStorage<T> shard : shards) {
+            bytes += shard.bytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public int capacity() {
+        int capacity = 0;
+        for (final ReservoirStorage<T> shard : shards) {
+            capacity += shard.capacity();
+        }
+        return capacity;
+    }
+
+    @Override
+    public boolean resize(final int capacity) {
+        final int shardSize = Math.max(1, (capacity + shards.length - 1) / shards.length);
+        boolean resized = false;
+        for (final ReservoirStorage<T> shard : shards) {
+            resized |= shard.resize(shardSize);
+        }
+        return resized;
+    }
+
+    @Override
+    public boolean isResizable() {
+        return true;
+    }
+
+    int stripes() {
+        return shards.length;
+    }
+
+    private ReservoirStorage<T> shard() {
+        return shards[ThreadLocalRandom.current().nextInt() & mask];
+    }
+
+    // k-way merge of the time sorted shards
+    private <C extends List<InMemoryDatabase.Value<T>>> C merge(
+            final Function<ReservoirStorage<T>, Collection<InMemoryDatabase.Value<T>>> reader, final C out) {
+        final Iterator<InMemoryDatabase.Value<T>> merged = new Merge<>(shards, shard -> reader.apply(shard).iterator(), ReservoirStorage.TIME_ORDER);
+        while (merged.hasNext()) {
+            out.add(merged.next());
+        }
+        return out;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> ReservoirStorage<T>[] newShards(final int count) {
+        return new ReservoirStorage[count];
+    }
+
+    // lazy k-way merge, a shard is only read when its head is consumed
+    private static final class Merge<T> implements Iterator<InMemoryDatabase.Value<T>> {
+        private final PriorityQueue<Head<T>> heads;
+
+        private Merge(final ReservoirStorage<T>[] shards,
+                      final Function<ReservoirStorage<T>, Iterator<InMemoryDatabase.Value<T>>> reader,
+                      final Comparator<InMemoryDatabase.Value<?>> order) {
+            heads = new PriorityQueue<>(shards.length, (a, b) -> order.compare(a.current, b.current));
+            for (final ReservoirStorage<T> shard : shards) {
+                final Iterator<InMemoryDatabase.Value<T>> iterator = reader.apply(shard);
+                if (iterator.hasNext()) {
+                    heads.add(new Head<>(iterator));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public InMemoryDatabase.Value<T> next() {
+            final Head<T> head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            final InMemoryDatabase.Value<T> value = head.current;
+            if (head.iterator.hasNext()) {
+                head.current = head.iterator.next();
+                heads.add(head);
+            }
+            return value;
+        }
+    }
+
+    private static final class Head<T> {
+        private final Iterator<InMemoryDatabase.Value<T>> iterator;
+        private InMemoryDatabase.Value<T> current;
+
+        private Head(final Iterator<InMemoryDatabase.Value<T>> iterator) {
+            this.iterator = iterator;
+            this.current = iterator.next();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+// folds the closed write ahead log files into one segment per series, a mapped ring file of "capacity" points
+// (same layout than the mapped engine) so the retention is enforced by the ring itself
+final class WalCompactor {
+    static final String CHECKPOINT = "wal.compacted";
+
+    private final Path directory;
+    private final Path checkpoint;
+    private final int capacity;
+    private final WriteAheadLog wal;
+    private final Map<String, Segment> segments = new ConcurrentHashMap<>();
+
+    private long compacted; // sequence of the last log file folded in the segments
+
+    WalCompactor(final Path directory, final int capacity, final WriteAheadLog wal) {
+        this.directory = directory;
+        this.checkpoint = directory.resolve(CHECKPOINT);
+        this.capacity = capacity;
+        this.wal = wal;
+        this.compacted = readCheckpoint();
+        wal.startAfter(compacted); // if all the files were deleted the sequence must not restart below the checkpoint
+    }
+
+    // the checkpoint is written once the segments are on disk and before the logs are deleted,
+    // a crash in between leaves logs which are already compacted, they are deleted without being replayed again
+    synchronized void compact() {
+        final List<Path> files = wal.rotate();
+        if (files.isEmpty()) {
+            return;
+        }
+        final Set<Segment> updated = new HashSet<>();
+        long last = compacted;
+        for (final Path file : files) {
+            final long sequence = WriteAheadLog.sequence(file);
+            if (sequence <= compacted) {
+                continue;
+            }
+            WriteAheadLog.replay(file, entry -> {
+                final Segment segment = segment(entry.getSeries(), entry.getRow().length);
+                segment.storage.add(entry.getTimestamp(), entry.getRow());
+                updated.add(segment);
+            });
+            last = Math.max(last, sequence);
+        }
+        updated.forEach(it -> it.memory.force());
+        segments.values().retainAll(updated); // don't keep the files of the idle (or evicted) series mapped
+        if (last != compacted) {
+            writeCheckpoint(last);
+            compacted = last;
+        }
+        for (final Path file : files) {
+            try {
+                Files.delete(file);
+            } catch (final IOException e) {
+                throw new IllegalStateException("Can't delete compacted " + file, e);
+            }
+        }
+    }
+
+    // the segments were forced by the last compaction, they are only unreferenced
+    synchronized void close() {
+        segments.clear();
+    }
+
+    // compacted points of a series, oldest first
+    List<InMemoryDatabase.Value<double[]>> load(final String series, final int columns) {
+        if (!segments.containsKey(series) && !Files.exists(MappedRingMemory.file(directory, series))) {
+            return emptyList();
+        }
+        return segment(series, columns).storage.snapshot();
+    }
+
+    private long readCheckpoint() {
+        if (!Files.exists(checkpoint)) {
+            return 0;
+        }
+        try {
+            final byte[] bytes = Files.readAllBytes(checkpoint);
+            if (bytes.length != Long.BYTES) {
+                throw new IllegalStateException("Invalid compaction checkpoint " + checkpoint);
+            }
+            return ByteBuffer.wrap(bytes).getLong();
+        } catch (final IOException e) {
+            throw new IllegalStateException("Can't read " + checkpoint, e);
+        }
+    }
+
+    // written aside then renamed so a crash never leaves a partial checkpoint
+    private void writeCheckpoint(final long sequence) {
+        final Path tmp = directory.resolve(CHECKPOINT + ".tmp");
+        try (final FileChannel channel = FileChannel.open(tmp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            final ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(0, sequence);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Can't write " + tmp, e);
+        }
+        try {
+            Files.move(tmp, checkpoint, ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Can't write " + checkpoint, e);
+        }
+    }
+
+    private Segment segment(final String series, final int columns) {
+        return segments.compute(series, (key, existing) ->
+                existing != null && existing.columns == columns ? existing : new Segment(directory, series, capacity, columns));
+    }
+
+    private static final class Segment {
+        private final int columns;
+        private final MappedRingMemory memory;
+        private final RingStorage<double[]> storage;
+
+        private Segment(final Path directory, final String series, final int capacity, final int columns) {
+            this.columns = columns;
+            this.memory = new MappedRingMemory(MappedRingMemory.file(directory, series), capacity, columns);
+            this.storage = new RingStorage<>(memory, new RowCodec(columns));
+        }
+    }
+
+    // segments store raw rows, the series codec is applied when loading them
+    private static final class RowCodec implements ColumnCodec<double[]> {
+        private final List<String> columns;
+
+        private RowCodec(final int columns) {
+            this.columns = IntStream.range(0, columns).mapToObj(Integer::toString).collect(toList());
+        }
+
+        @Override
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        @Override
+        public double getColumn(final double[] value, final int index) {
+            return value[index];
+        }
+
+        @Override
+        public double[] decode(final double[] row) {
+            return row;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Comparator.comparingLong;
+import static java.util.stream.Collectors.toList;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// points recorded during a poll are appended as a single record on commit (end of tick) in wal-<sequence>.log files:
+// [payload length][crc32 of the payload][payload = commit timestamp, entry count, entries]
+// with entries being [name length][name utf-8][timestamp][column count][columns]
+final class WriteAheadLog {
+    private static final Logger LOGGER = Logger.getLogger(WriteAheadLog.class.getName());
+    private static final Pattern FILE = Pattern.compile("wal-(\\d+)\\.log");
+
+    private final Path directory;
+    private final long syncInterval;
+    private final Queue<Entry> pending = new ConcurrentLinkedQueue<>();
+
+    private FileChannel channel;
+    private long sequence;
+    private long lastSync;
+
+    // syncInterval: 0 forces the file to disk on each commit, a negative value lets the OS do it
+    WriteAheadLog(final Path directory, final long syncInterval) {
+        this.directory = directory;
+        this.syncInterval = syncInterval;
+        try {
+            Files.createDirectories(directory);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Can't create " + directory, e);
+        }
+        this.sequence = files().stream().mapToLong(WriteAheadLog::sequence).max().orElse(0);
+    }
+
+    void record(final String series, final long timestamp, final double[] row) {
+        pending.add(new Entry(series, timestamp, row));
+    }
+
+    synchronized void commit() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        final List<Entry> batch = new ArrayList<>();
+        int size = Long.BYTES + Integer.BYTES;
+        Entry entry;
+        while ((entry = pending.poll()) != null) {
+            batch.add(entry);
+            size += Short.BYTES + entry.name.length + Long.BYTES + Short.BYTES + Double.BYTES * entry.row.length;
+        }
+
+        final ByteBuffer record = ByteBuffer.allocate(2 * Integer.BYTES + size);
+        record.position(2 * Integer.BYTES);
+        record.putLong(System.currentTimeMillis());
+        record.putInt(batch.size());
+        for (final Entry value : batch) {
+            record.putShort((short) value.name.length);
+            record.put(value.name);
+            record.putLong(value.timestamp);
+            record.putShort((short) value.row.length);
+            for (final double column : value.row) {
+                record.putDouble(column);
+            }
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(record.array(), 2 * Integer.BYTES, size);
+        record.putInt(0, size);
+        record.putInt(Integer.BYTES, (int) crc.getValue());
+        record.flip();
+
+        try {
+            if (channel == null) {
+                channel = FileChannel.open(directory.resolve("wal-" + (++sequence) + ".log"), CREATE, WRITE, APPEND);
+            }
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            final long now = System.currentTimeMillis();
+            if (syncInterval >= 0 && now - lastSync >= syncInterval) {
+                channel.force(false);
+                lastSync = now;
+            }
+        } catch (final IOException e) { // don't break the poller, these points will just not survive a restart
+            LOGGER.warning("Can't write " + batch.size() + " points to the write ahead log: " + e.getMessage());
+        }
+    }
+
+    // the next files get a sequence greater than this one
+    synchronized void startAfter(final long sequence) {
+        this.sequence = Math.max(this.sequence, sequence);
+    }
+
+    // closes the file being written, all the files are then immutable and returned oldest first
+    synchronized List<Path> rotate() {
+        close();
+        return files();
+    }
+
+    synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (final IOException e) {
+            LOGGER.warning("Can't close the write ahead log: " + e.getMessage());
+        } finally {
+            channel = null;
+        }
+    }
+
+    // stops at the first incomplete or corrupted record, it is a write interrupted by a crash
+    static void replay(final Path file, final Consumer<Entry> consumer) {
+        final ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        } catch (final IOException e) {
+            throw new IllegalStateException("Can't read " + file, e);
+        }
+        while (buffer.remaining() >= 2 * Integer.BYTES) {
+            final int start = buffer.position();
+            final int size = buffer.getInt();
+            final int expectedCrc = buffer.getInt();
+            if (size < Long.BYTES + Integer.BYTES || size > buffer.remaining()) {
+                LOGGER.warning("Truncated record at " + start + " in " + file + ", ignoring the end of the file");
+                return;
+            }
+            final CRC32 crc = new CRC32();
+            crc.update(buffer.array(), buffer.position(), size);
+            if ((int) crc.getValue() != expectedCrc) {
+                LOGGER.warning("Corrupted record at " + start + " in " + file + ", ignoring the end of the file");
+                return;
+            }
+            buffer.getLong(); // commit timestamp
+            final int entries = buffer.getInt();
+            for (int i = 0; i < entries; i++) {
+                final byte[] name = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(name);
+                final long timestamp = buffer.getLong();
+                final double[] row = new double[buffer.getShort() & 0xFFFF];
+                for (int c = 0; c < row.length; c++) {
+                    row[c] = buffer.getDouble();
+                }
+                consumer.accept(new Entry(name, timestamp, row));
+            }
+        }
+    }
+
+    private List<Path> files() {
+        try (final Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(it -> FILE.matcher(it.getFileName().toString()).matches())
+                    .sorted(comparingLong(WriteAheadLog::sequence))
+                    .collect(toList());
+        } catch (final IOException e) {
+            throw new IllegalStateException("Can't list " + directory, e);
+        }
+    }
+
+    static long sequence(final Path file) {
+        final Matcher matcher = FILE.matcher(file.getFileName().toString());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Not a write ahead log file: " + file);
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    static final class Entry {
+        private final byte[] name;
+        private final long timestamp;
+        private final double[] row;
+
+        private Entry(final String series, final long timestamp, final double[] row) {
+            this(series.getBytes(UTF_8), timestamp, row);
+            if (name.length > 0xFFFF || row.length > 0xFFFF) {
+                throw new IllegalArgumentException("Series too big to be journaled: " + series);
+            }
+        }
+
+        private Entry(final byte[] name, final long timestamp, final double[] row) {
+            this.name = name;
+            this.timestamp = timestamp;
+            this.row = row;
+        }
+
+        String getSeries() {
+            return new String(name, UTF_8);
+        }
+
+        long getTimestamp() {
+            return timestamp;
+        }
+
+        double[] getRow() {
+            return row;
+        }
+    }
+}
@@ -18,21 +18,37 @@ package org.apache.geronimo.microprofile.reporter.storage.front;
 
 import static java.util.Arrays.asList;
 import static java.util.Comparator.comparing;
+import static java.util.Comparator.comparingInt;
+import static java.util.Comparator.comparingLong;
 import static java.util.Objects.requireNonNull;
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.joining;
+import static java.util.concurrent.TimeUnit.DAYS;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.stream.Collectors.toList;
 import static javax.ws.rs.core.MediaType.TEXT_HTML;
+import static org.apache.geronimo.microprofile.reporter.storage.data.Aggregation.AVG;
+import static org.apache.geronimo.microprofile.reporter.storage.data.Aggregation.LAST;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
-import java.util.TreeSet;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 import javax.annotation.PostConstruct;
@@ -44,13 +60,20 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 
+import org.apache.geronimo.microprofile.reporter.storage.data.Aggregation;
+import org.apache.geronimo.microprofile.reporter.storage.data.ColumnarDatabase;
+import org.apache.geronimo.microprofile.reporter.storage.data.DoubleSeriesDatabase;
 import org.apache.geronimo.microprofile.reporter.storage.data.InMemoryDatabase;
+import org.apache.geronimo.microprofile.reporter.storage.data.LongSeriesDatabase;
 import org.apache.geronimo.microprofile.reporter.storage.data.MicroprofileDatabase;
+import org.apache.geronimo.microprofile.reporter.storage.data.SeriesRegistry;
+import org.apache.geronimo.microprofile.reporter.storage.data.SpanQuery;
 import org.apache.geronimo.microprofile.reporter.storage.plugins.health.CheckSnapshot;
 import org.apache.geronimo.microprofile.reporter.storage.plugins.health.HealthService;
 import org.apache.geronimo.microprofile.reporter.storage.plugins.metrics.MeterSnapshot;
 import org.apache.geronimo.microprofile.reporter.storage.plugins.metrics.SnapshotStat;
 import org.apache.geronimo.microprofile.reporter.storage.plugins.metrics.TimerSnapshot;
+import org.apache.geronimo.microprofile.reporter.storage.plugins.tracing.RedSnapshot;
 import org.apache.geronimo.microprofile.reporter.storage.plugins.tracing.SpanEntry;
 import org.apache.geronimo.microprofile.reporter.storage.plugins.tracing.TracingExtension;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
@@ -60,6 +83,8 @@ import org.eclipse.microprofile.config.inject.ConfigProperty;
 @Produces(TEXT_HTML)
 public class ReporterEndpoints {
     private static final Colors COLORS = new Colors("#007bff", "#0000CD");
+    private static final long DEFAULT_RANGE = HOURS.toMillis(1);
+    private static final int DEFAULT_PAGE_SIZE = 100;
 
     @Inject
     private MicroprofileDatabase database;
@@ -100,9 +125,10 @@ public class ReporterEndpoints {
                 .findFirst()
                 .orElseThrow(() -> new IllegalStateException("No " + chartJsResource + " found, did you add org.webjars.bower:chart.js:2.7.3 to your classpath?"));
 
-        tiles = new ArrayList<>(7);
+        tiles = new ArrayList<>(8);
         if (tracing.isActive()) {
             tiles.add("Spans");
+            tiles.add("Operations");
         }
         tiles.addAll(asList("Counters", "Gauges", "Histograms", "Meters", "Timers"));
         if (health.isActive()) {
@@ -116,7 +142,9 @@ public class ReporterEndpoints {
                 .with("view", "index.html")
                 .with("colors", COLORS)
                 .with("title", "Home")
-                .with("tiles", tiles);
+                .with("tiles", tiles)
+                .with("storage", formatBytes(database.getBytes()) +
+                        (database.getMaxBytes() > 0 ? " of " + formatBytes(database.getMaxBytes()) : ""));
     }
 
     @GET
@@ -134,18 +162,23 @@ public class ReporterEndpoints {
 
     @GET
     @Path("counters")
-    public Html getCounters() {
+    public Html getCounters(@QueryParam("prefix") final String prefix, @QueryParam("q") final String query,
+                            @QueryParam("offset") final Integer offset, @QueryParam("limit") final Integer limit) {
+        final Listing listing = new Listing("counters", database.getCounters(), prefix, query, offset, limit);
         return new Html("main.html")
                 .with("view", "counters.html")
                 .with("colors", COLORS)
                 .with("title", "Counters")
-                .with("counters", new TreeSet<>(database.getCounters().keySet()));
+                .with("listing", listing)
+                .with("counters", listing.names);
     }
 
     @GET
     @Path("counter")
-    public Html getCounter(@QueryParam("counter") final String name) {
-        final InMemoryDatabase<Long> db = database.getCounters().get(name);
+    public Html getCounter(@QueryParam("counter") final String name,
+                           @QueryParam("from") final Long from, @QueryParam("to") final Long to) {
+        final LongSeriesDatabase db = database.getCounters().get(name);
+        final Range range = new Range(from, to);
         return new Html("main.html")
                 .with("view", "counter.html")
                 .with("colors", COLORS)
@@ -153,23 +186,30 @@ public class ReporterEndpoints {
                 .with("name", name)
                 .with("unit", db == null ? null : db.getUnit())
                 .with("message", db == null ? "No matching counter for name '" + name + "'" : null)
-                .with("points", db == null ? null : db.snapshot().stream().map(Point::new).collect(toList()));
+                .with("windows", windows("counter", name))
+                .with("resolution", db == null ? null : resolution(db.getResolution(range.from, range.to)))
+                .with("points", db == null ? null : extend(toPoints(db.cursor("value", range.from, range.to, LAST)), db.getLastChecked(), range));
     }
 
     @GET
     @Path("gauges")
-    public Html getGauges() {
+    public Html getGauges(@QueryParam("prefix") final String prefix, @QueryParam("q") final String query,
+                          @QueryParam("offset") final Integer offset, @QueryParam("limit") final Integer limit) {
+        final Listing listing = new Listing("gauges", database.getGauges(), prefix, query, offset, limit);
         return new Html("main.html")
                 .with("view", "gauges.html")
                 .with("colors", COLORS)
                 .with("title", "Gauges")
-                .with("gauges", new TreeSet<>(database.getGauges().keySet()));
+                .with("listing", listing)
+                .with("gauges", listing.names);
     }
 
     @GET
     @Path("gauge")
-    public Html getGauge(@QueryParam("gauge") final String name) {
-        final InMemoryDatabase<Double> db = database.getGauges().get(name);
+    public Html getGauge(@QueryParam("gauge") final String name,
+                         @QueryParam("from") final Long from, @QueryParam("to") final Long to) {
+        final DoubleSeriesDatabase db = database.getGauges().get(name);
+        final Range range = new Range(from, to);
         return new Html("main.html")
                 .with("view", "gauge.html")
                 .with("colors", COLORS)
@@ -177,23 +217,30 @@ public class ReporterEndpoints {
                 .with("name", name)
                 .with("unit", db == null ? null : db.getUnit())
                 .with("message", db == null ? "No matching gauge for name '" + name + "'" : null)
-                .with("points", db == null ? null : db.snapshot().stream().map(Point::new).collect(toList()));
+                .with("windows", windows("gauge", name))
+                .with("resolution", db == null ? null : resolution(db.getResolution(range.from, range.to)))
+                .with("points", db == null ? null : extend(toPoints(db.cursor("value", range.from, range.to, AVG)), db.getLastChecked(), range));
     }
 
     @GET
     @Path("histograms")
-    public Html getHistograms() {
+    public Html getHistograms(@QueryParam("prefix") final String prefix, @QueryParam("q") final String query,
+                              @QueryParam("offset") final Integer offset, @QueryParam("limit") final Integer limit) {
+        final Listing listing = new Listing("histograms", database.getHistograms(), prefix, query, offset, limit);
         return new Html("main.html")
                 .with("view", "histograms.html")
                 .with("colors", COLORS)
                 .with("title", "Histograms")
-                .with("histograms", new TreeSet<>(database.getHistograms().keySet()));
+                .with("listing", listing)
+                .with("histograms", listing.names);
     }
 
     @GET
     @Path("histogram")
-    public Html getHistogram(@QueryParam("histogram") final String name) {
-        final InMemoryDatabase<SnapshotStat> db = database.getHistograms().get(name);
+    public Html getHistogram(@QueryParam("histogram") final String name,
+                             @QueryParam("from") final Long from, @QueryParam("to") final Long to) {
+        final ColumnarDatabase<SnapshotStat> db = database.getHistograms().get(name);
+        final Range range = new Range(from, to);
         return new Html("main.html")
                 .with("view", "histogram.html")
                 .with("colors", COLORS)
@@ -201,23 +248,30 @@ public class ReporterEndpoints {
                 .with("name", name)
                 .with("unit", db == null ? null : db.getUnit())
                 .with("message", db == null ? "No matching histogram for name '" + name + "'" : null)
-                .with("points", db == null ? null : db.snapshot().stream().map(Point::new).collect(toList()));
+                .with("windows", windows("histogram", name))
+                .with("resolution", db == null ? null : resolution(db.getResolution(range.from, range.to)))
+                .with("columns", db == null ? null : toColumns(db, range, AVG));
     }
 
     @GET
     @Path("meters")
-    public Html getMeters() {
+    public Html getMeters(@QueryParam("prefix") final String prefix, @QueryParam("q") final String query,
+                          @QueryParam("offset") final Integer offset, @QueryParam("limit") final Integer limit) {
+        final Listing listing = new Listing("meters", database.getMeters(), prefix, query, offset, limit);
         return new Html("main.html")
                 .with("view", "meters.html")
                 .with("colors", COLORS)
                 .with("title", "Meters")
-                .with("meters", new TreeSet<>(database.getMeters().keySet()));
+                .with("listing", listing)
+                .with("meters", listing.names);
     }
 
     @GET
     @Path("meter")
-    public Html getMeter(@QueryParam("meter") final String name) {
-        final InMemoryDatabase<MeterSnapshot> db = database.getMeters().get(name);
+    public Html getMeter(@QueryParam("meter") final String name,
+                         @QueryParam("from") final Long from, @QueryParam("to") final Long to) {
+        final ColumnarDatabase<MeterSnapshot> db = database.getMeters().get(name);
+        final Range range = new Range(from, to);
         return new Html("main.html")
                 .with("view", "meter.html")
                 .with("colors", COLORS)
@@ -225,23 +279,30 @@ public class ReporterEndpoints {
                 .with("name", name)
                 .with("unit", db == null ? null : db.getUnit())
                 .with("message", db == null ? "No matching meter for name '" + name + "'" : null)
-                .with("points", db == null ? null : db.snapshot().stream().map(Point::new).collect(toList()));
+                .with("windows", windows("meter", name))
+                .with("resolution", db == null ? null : resolution(db.getResolution(range.from, range.to)))
+                .with("columns", db == null ? null : toColumns(db, range, AVG));
     }
 
     @GET
     @Path("timers")
-    public Html getTimers() {
+    public Html getTimers(@QueryParam("prefix") final String prefix, @QueryParam("q") final String query,
+                          @QueryParam("offset") final Integer offset, @QueryParam("limit") final Integer limit) {
+        final Listing listing = new Listing("timers", database.getTimers(), prefix, query, offset, limit);
         return new Html("main.html")
                 .with("view", "timers.html")
                 .with("colors", COLORS)
                 .with("title", "Timers")
-                .with("timers", new TreeSet<>(database.getTimers().keySet()));
+                .with("listing", listing)
+                .with("timers", listing.names);
     }
 
     @GET
     @Path("timer")
-    public Html getTimer(@QueryParam("timer") final String name) {
-        final InMemoryDatabase<TimerSnapshot> db = database.getTimers().get(name);
+    public Html getTimer(@QueryParam("timer") final String name,
+                         @QueryParam("from") final Long from, @QueryParam("to") final Long to) {
+        final ColumnarDatabase<TimerSnapshot> db = database.getTimers().get(name);
+        final Range range = new Range(from, to);
         return new Html("main.html")
                 .with("view", "timer.html")
                 .with("colors", COLORS)
@@ -249,31 +310,75 @@ public class ReporterEndpoints {
                 .with("name", name)
                 .with("unit", db == null ? null : db.getUnit())
                 .with("message", db == null ? "No matching timer for name '" + name + "'" : null)
-                .with("points", db == null ? null : db.snapshot().stream().map(Point::new).collect(toList()));
+                .with("windows", windows("timer", name))
+                .with("resolution", db == null ? null : resolution(db.getResolution(range.from, range.to)))
+                .with("columns", db == null ? null : toColumns(db, range, AVG));
+    }
+
+    @GET
+    @Path("operations")
+    public Html getOperations(@QueryParam("prefix") final String prefix, @QueryParam("q") final String query,
+                              @QueryParam("offset") final Integer offset, @QueryParam("limit") final Integer limit) {
+        final Listing listing = new Listing("operations", database.getOperations(), prefix, query, offset, limit);
+        return new Html("main.html")
+                .with("view", "operations.html")
+                .with("colors", COLORS)
+                .with("title", "Operations")
+                .with("listing", listing)
+                .with("operations", listing.names);
+    }
+
+    @GET
+    @Path("operation")
+    public Html getOperation(@QueryParam("operation") final String name,
+                             @QueryParam("from") final Long from, @QueryParam("to") final Long to) {
+        final ColumnarDatabase<RedSnapshot> db = database.getOperations().get(name);
+        final Range range = new Range(from, to);
+        return new Html("main.html")
+                .with("view", "operation.html")
+                .with("colors", COLORS)
+                .with("title", "Operation")
+                .with("name", name)
+                .with("unit", db == null ? null : db.getUnit())
+                .with("message", db == null ? "No matching operation for name '" + name + "'" : null)
+                .with("windows", windows("operation", name))
+                .with("resolution", db == null ? null : resolution(db.getResolution(range.from, range.to)))
+                .with("columns", db == null ? null : toColumns(db, range, AVG));
     }
 
     @GET
     @Path("spans")
-    public Html getSpans() {
-        final InMemoryDatabase<SpanEntry> db = database.getSpans();
+    public Html getSpans(@QueryParam("from") final Long from, @QueryParam("to") final Long to,
+                         @QueryParam("name") final String name, @QueryParam("kind") final String kind,
+                         @QueryParam("tag") final String tag,
+                         @QueryParam("minDuration") final Long minDuration, @QueryParam("maxDuration") final Long maxDuration,
+                         @QueryParam("groupBy") final String groupBy,
+                         @QueryParam("offset") final Integer offset, @QueryParam("limit") final Integer limit) {
+        final Range range = new Range(from, to);
+        final SpanQuery query;
+        try {
+            query = new SpanQuery(name, kind, tag, minDuration, maxDuration, range.from, range.to);
+        } catch (final IllegalArgumentException iae) {
+            throw new BadRequestException(iae.getMessage());
+        }
         return new Html("main.html")
                 .with("view", "spans.html")
                 .with("colors", COLORS)
                 .with("title", "Spans")
-                .with("spans", db == null ?
+                .with("windows", windows("spans", null))
+                .with("dropped", tracing.getDropped() > 0 ? tracing.getDropped() : null)
+                .with("boosted", tracing.isTailSampling() ? tracing.getBoostedTraces() : null)
+                .with("sampledOut", tracing.getSampledOutTraces())
+                .with("search", database.getSpans() == null ?
                         null :
-                        db.snapshot().stream()
-                            .map(it -> new Point<>(it.getTimestamp(), it.getValue()))
-                            .collect(toList()));
+                        new SpanSearch(database, query, from, to, name, kind, tag, minDuration, maxDuration,
+                                groupBy, offset, limit));
     }
 
     @GET
     @Path("span")
     public Html getSpan(@QueryParam("spanId") final String id) {
-        final SpanEntry value = database.getSpans().snapshot().stream()
-               .map(InMemoryDatabase.Value::getValue)
-               .filter(it -> it.getSpanId().equals(id))
-               .findFirst()
+        final SpanEntry value = ofNullable(database.getSpanIndex().span(id))
                .orElseThrow(() -> new BadRequestException("No matching span"));
         return new Html("main.html")
                 .with("view", "span.html")
@@ -282,35 +387,55 @@ public class ReporterEndpoints {
                 .with("span", value);
     }
 
+    @GET
+    @Path("trace")
+    public Html getTrace(@QueryParam("traceId") final String id) {
+        final Collection<SpanEntry> spans = database.getSpanIndex().trace(id);
+        if (spans.isEmpty()) {
+            throw new BadRequestException("No matching trace");
+        }
+        return new Html("main.html")
+                .with("view", "trace.html")
+                .with("colors", COLORS)
+                .with("title", "Trace")
+                .with("traceId", id)
+                .with("spans", toTree(spans));
+    }
+
     @GET
     @Path("health-checks")
-    public Html getHealths() {
+    public Html getHealths(@QueryParam("prefix") final String prefix, @QueryParam("q") final String query,
+                           @QueryParam("offset") final Integer offset, @QueryParam("limit") final Integer limit) {
+        final Listing listing = new Listing("health-checks", database.getChecks(), prefix, query, offset, limit);
         return new Html("main.html")
                 .with("view", "health-checks.html")
                 .with("colors", COLORS)
                 .with("title", "Health Checks")
-                .with("checks", new TreeSet<>(database.getChecks().keySet()));
+                .with("listing", listing)
+                .with("checks", listing.names);
     }
 
     @GET
     @Path("check")
-    public Html getHealth(@QueryParam("check") final String name) {
-        final InMemoryDatabase<CheckSnapshot> db = database.getChecks().get(name);
+    public Html getHealth(@QueryParam("check") final String name,
+                          @QueryParam("from") final Long from, @QueryParam("to") final Long to) {
+        final ColumnarDatabase<CheckSnapshot> db = database.getChecks().get(name);
+        final Range range = new Range(from, to);
         return new Html("main.html")
                 .with("view", "health.html")
                 .with("colors", COLORS)
                 .with("title", "Health Check")
                 .with("name", name)
                 .with("message", db == null ? "No matching check for name '" + name + "'" : null)
-                .with("points", db == null ? null : db.snapshot().stream().map(Point::new).collect(toList()));
+                .with("windows", windows("check", name))
+                .with("points", db == null ? null : db.range(range.from, range.to).stream().map(Point::new).collect(toList()));
     }
 
     @GET
     @Path("health-check-detail")
     public Html getHealthCheckDetail(@QueryParam("check") final String name) {
         final InMemoryDatabase.Value<CheckSnapshot> last = ofNullable(database.getChecks().get(name))
-                .map(InMemoryDatabase::snapshot)
-                .map(it -> it.isEmpty() ? null : it.getLast())
+                .map(InMemoryDatabase::latest)
                 .orElse(null); // todo: orElseGet -> call them all and filter per name?
         return new Html("main.html")
                 .with("view", "health-check-detail.html")
@@ -319,7 +444,7 @@ public class ReporterEndpoints {
                 .with("name", name)
                 .with("message", last == null ? "No matching check yet for name '" + name + "'" : null)
                 .with("lastCheckTimestamp", last == null ? null : new Date(last.getTimestamp()))
-                .with("lastCheck", last == null ? null : last.getValue());
+                .with("lastCheck", last == null ? null : ofNullable(health.getLastCheck(name)).orElseGet(last::getValue));
     }
 
     @GET
@@ -338,6 +463,72 @@ public class ReporterEndpoints {
                 .with("checks", checks);
     }
 
+    // depth first rows of the parent/child tree, spans whose parent was not kept are roots
+    private List<TraceRow> toTree(final Collection<SpanEntry> spans) {
+        final Map<String, SpanEntry> byId = new HashMap<>();
+        spans.forEach(span -> byId.put(span.getSpanId(), span));
+        final Map<String, List<SpanEntry>> children = new HashMap<>();
+        final List<SpanEntry> roots = new ArrayList<>();
+        long start = Long.MAX_VALUE;
+        long end = Long.MIN_VALUE;
+        for (final SpanEntry span : spans) {
+            final String parent = span.getParentId();
+            if (parent == null || parent.equals(span.getSpanId()) || !byId.containsKey(parent)) {
+                roots.add(span);
+            } else {
+                children.computeIfAbsent(parent, k -> new ArrayList<>()).add(span);
+            }
+            start = Math.min(start, span.getTimestamp());
+            end = Math.max(end, span.getTimestamp() + span.getDuration());
+        }
+
+        final double total = Math.max(1, end - start);
+        final List<TraceRow> rows = new ArrayList<>(spans.size());
+        final Deque<TraceRow> stack = new ArrayDeque<>();
+        push(stack, roots, 0, start, total);
+        while (!stack.isEmpty()) {
+            final TraceRow row = stack.pop();
+            rows.add(row);
+            push(stack, children.get(row.span.getSpanId()), row.depth + 1, start, total);
+        }
+        return rows;
+    }
+
+    private void push(final Deque<TraceRow> stack, final List<SpanEntry> spans, final int depth,
+                      final long start, final double total) {
+        if (spans == null) {
+            return;
+        }
+        spans.sort(comparingLong(SpanEntry::getTimestamp).reversed()); // the first started is popped first
+        spans.forEach(span -> stack.push(new TraceRow(span, depth, start, total)));
+    }
+
+    private Map<String, List<Point<Double>>> toColumns(final ColumnarDatabase<?> db, final Range range,
+                                                       final Aggregation aggregation) {
+        final Map<String, List<Point<Double>>> columns = new HashMap<>();
+        db.getColumns().forEach(column -> columns.put(column, toPoints(db.cursor(column, range.from, range.to, aggregation))));
+        return columns;
+    }
+
+    private List<Point<Double>> toPoints(final DoubleSeriesDatabase.Cursor cursor) {
+        final List<Point<Double>> points = new ArrayList<>();
+        while (cursor.next()) {
+            points.add(new Point<>(cursor.getTimestamp(), cursor.getValue()));
+        }
+        return points;
+    }
+
+    // with change detection the last stored value is still the current one, the step line goes up to the last check
+    private List<Point<Double>> extend(final List<Point<Double>> points, final long lastChecked, final Range range) {
+        if (!points.isEmpty() && lastChecked <= range.to) {
+            final Point<Double> last = points.get(points.size() - 1);
+            if (last.timestamp < lastChecked) {
+                points.add(new Point<>(lastChecked, last.value));
+            }
+        }
+        return points;
+    }
+
     public static class Point<T> {
         private final long timestamp;
         private final T value;
@@ -352,6 +543,235 @@ public class ReporterEndpoints {
         }
     }
 
+    private List<Window> windows(final String type, final String name) {
+        final String base = type + "?" + (name == null ? "" : type + "=" + urlEncode(name) + "&") + "from=-";
+        return asList(
+                new Window("1h", base + HOURS.toMillis(1)),
+                new Window("6h", base + HOURS.toMillis(6)),
+                new Window("24h", base + DAYS.toMillis(1)),
+                new Window("7d", base + DAYS.toMillis(7)),
+                new Window("30d", base + DAYS.toMillis(30)));
+    }
+
+    private String resolution(final long duration) {
+        if (duration == 0) {
+            return "raw points";
+        }
+        if (duration % HOURS.toMillis(1) == 0) {
+            return MILLISECONDS.toHours(duration) + "h buckets";
+        }
+        if (duration % MINUTES.toMillis(1) == 0) {
+            return MILLISECONDS.toMinutes(duration) + "mn buckets";
+        }
+        return duration + "ms buckets";
+    }
+
+    private static String formatBytes(final long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format(Locale.ROOT, "%.1f kB", bytes / 1024.);
+        }
+        return String.format(Locale.ROOT, "%.1f MB", bytes / (1024. * 1024));
+    }
+
+    private static String urlEncode(final String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // [from, to] in epoch ms, no "to" means now and a negative "from" is relative to "to"
+    private static class Range {
+        private final long from;
+        private final long to;
+
+        private Range(final Long from, final Long to) {
+            this.to = to == null ? System.currentTimeMillis() : to;
+            this.from = from == null ? this.to - DEFAULT_RANGE : (from < 0 ? this.to + from : from);
+        }
+    }
+
+    // a page of the sorted series names, the registries keep them sorted so it is a view and not a copy
+    private static class Listing {
+        private final List<String> names;
+        private final String prefix;
+        private final String query;
+        private final int total;
+        private final int first;
+        private final int last;
+        private final String previous;
+        private final String next;
+
+        private Listing(final String type, final SeriesRegistry<?> registry, final String prefix, final String query,
+                        final Integer offset, final Integer limit) {
+            final int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+            final int start = offset == null ? 0 : offset;
+            if (pageSize <= 0 || start < 0) {
+                throw new BadRequestException("Invalid page, offset=" + offset + ", limit=" + limit);
+            }
+            final List<String> matching = registry.names(prefix, query);
+            this.prefix = prefix;
+            this.query = query;
+            this.total = matching.size();
+            this.names = matching.subList(Math.min(start, total), Math.min(total, start + pageSize));
+            this.first = names.isEmpty() ? 0 : start + 1;
+            this.last = start + names.size();
+            final String base = type + "?" +
+                    (prefix == null || prefix.isEmpty() ? "" : "prefix=" + urlEncode(prefix) + "&") +
+                    (query == null || query.isEmpty() ? "" : "q=" + urlEncode(query) + "&") +
+                    "limit=" + pageSize + "&offset=";
+            this.previous = start > 0 ? base + Math.max(0, start - pageSize) : null;
+            this.next = start + pageSize < total ? base + (start + pageSize) : null;
+        }
+    }
+
+    // a page of the matching spans, most recent first, or their aggregates when grouped
+    private static class SpanSearch {
+        private final List<Point<SpanEntry>> spans;
+        private final List<SpanGroup> groups;
+        private final String name;
+        private final String kind;
+        private final String tag;
+        private final Long minDuration;
+        private final Long maxDuration;
+        private final String groupBy;
+        private final String from;
+        private final String to;
+        private final Integer total; // only known for the groups, the spans are read up to the requested page
+        private final int first;
+        private final int last;
+        private final String previous;
+        private final String next;
+
+        private SpanSearch(final MicroprofileDatabase database, final SpanQuery query, final Long from, final Long to,
+                           final String name, final String kind, final String tag,
+                           final Long minDuration, final Long maxDuration, final String groupBy,
+                           final Integer offset, final Integer limit) {
+            final int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+            final int start = offset == null ? 0 : offset;
+            if (pageSize <= 0 || start < 0) {
+                throw new BadRequestException("Invalid page, offset=" + offset + ", limit=" + limit);
+            }
+            this.name = name;
+            this.kind = kind;
+            this.tag = tag;
+            this.minDuration = minDuration;
+            this.maxDuration = maxDuration;
+            this.groupBy = groupBy == null || groupBy.isEmpty() ? null : groupBy;
+            this.from = from == null ? null : Long.toString(from);
+            this.to = to == null ? null : Long.toString(to);
+            final boolean hasNext;
+            if (this.groupBy == null) {
+                final List<SpanEntry> page = database.findSpans(query, start, pageSize + 1); // one more to know if there is a next page
+                hasNext = page.size() > pageSize;
+                this.total = null;
+                this.groups = null;
+                this.spans = page.subList(0, Math.min(pageSize, page.size())).stream()
+                        .map(it -> new Point<>(it.getTimestamp(), it))
+                        .collect(toList());
+                this.first = spans.isEmpty() ? 0 : start + 1;
+                this.last = start + spans.size();
+            } else {
+                final List<SpanGroup> allGroups = SpanGroup.of(database.findSpans(query), this.groupBy);
+                final int end = Math.min(allGroups.size(), start + pageSize);
+                hasNext = end < allGroups.size();
+                this.total = allGroups.size();
+                this.groups = allGroups.subList(Math.min(start, end), end);
+                this.spans = null;
+                this.first = start < end ? start + 1 : 0;
+                this.last = Math.max(start, end);
+            }
+            final String base = "spans?" + Stream.of(
+                        param("from", this.from), param("to", this.to), param("name", name), param("kind", kind),
+                        param("tag", tag), param("minDuration", minDuration == null ? null : minDuration.toString()),
+                        param("maxDuration", maxDuration == null ? null : maxDuration.toString()),
+                        param("groupBy", this.groupBy), "limit=" + pageSize)
+                    .filter(Objects::nonNull)
+                    .collect(joining("&")) + "&offset=";
+            this.previous = start > 0 ? base + Math.max(0, start - pageSize) : null;
+            this.next = hasNext ? base + (start + pageSize) : null;
+        }
+
+        private static String param(final String name, final String value) {
+            return value == null || value.isEmpty() ? null : name + '=' + urlEncode(value);
+        }
+    }
+
+    // durations are in microseconds
+    private static class SpanGroup {
+        private final String key;
+        private final int count;
+        private final long errors;
+        private final long pc50;
+        private final long pc99;
+        private final long max;
+
+        private SpanGroup(final String key, final List<SpanEntry> spans) {
+            this.key = key;
+            this.count = spans.size();
+            this.errors = spans.stream().filter(SpanEntry::isError).count();
+            final long[] durations = spans.stream().mapToLong(SpanEntry::getDuration).sorted().toArray();
+            this.pc50 = percentile(durations, .5);
+            this.pc99 = percentile(durations, .99);
+            this.max = durations[durations.length - 1];
+        }
+
+        // most frequent first
+        private static List<SpanGroup> of(final List<SpanEntry> spans, final String groupBy) {
+            final Function<SpanEntry, String> classifier;
+            switch (groupBy) {
+                case "name":
+                    classifier = SpanEntry::getName;
+                    break;
+                case "kind":
+                    classifier = SpanEntry::getKind;
+                    break;
+                default:
+                    throw new BadRequestException("Unsupported groupBy '" + groupBy + "', supported: name, kind");
+            }
+            final Map<String, List<SpanEntry>> groups = new HashMap<>();
+            spans.forEach(span -> groups.computeIfAbsent(String.valueOf(classifier.apply(span)), k -> new ArrayList<>()).add(span));
+            return groups.entrySet().stream()
+                    .map(it -> new SpanGroup(it.getKey(), it.getValue()))
+                    .sorted(comparingInt((SpanGroup it) -> it.count).reversed().thenComparing(it -> it.key))
+                    .collect(toList());
+        }
+
+        private static long percentile(final long[] sorted, final double percentile) {
+            return sorted[Math.max(0, (int) Math.ceil(sorted.length * percentile) - 1)];
+        }
+    }
+
+    private static class TraceRow {
+        private final SpanEntry span;
+        private final int depth;
+        private final String indent;
+        private final String offset;
+        private final String width;
+
+        private TraceRow(final SpanEntry span, final int depth, final long start, final double total) {
+            this.span = span;
+            this.depth = depth;
+            this.indent = depth * 20 + "px";
+            this.offset = String.format(Locale.ROOT, "%.2f", (span.getTimestamp() - start) * 100 / total);
+            this.width = String.format(Locale.ROOT, "%.2f", Math.max(0.1, span.getDuration() * 100 / total));
+        }
+    }
+
+    private static class Window {
+        private final String label;
+        private final String href;
+
+        private Window(final String label, final String href) {
+            this.label = label;
+            this.href = href;
+        }
+    }
+
     private static class Colors {
         private final String main;
         private final String hover;
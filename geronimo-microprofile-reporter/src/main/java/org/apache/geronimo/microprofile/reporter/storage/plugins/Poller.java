@@ -17,53 +17,92 @@
 package org.apache.geronimo.microprofile.reporter.storage.plugins;
 
 import static java.lang.Thread.NORM_PRIORITY;
+import static java.util.Optional.ofNullable;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.context.Destroyed;
 import javax.enterprise.context.Initialized;
 import javax.enterprise.event.Event;
+import javax.enterprise.event.NotificationOptions;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
 import javax.servlet.ServletContext;
 
+import org.apache.geronimo.microprofile.reporter.storage.data.MicroprofileDatabase;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 @ApplicationScoped
 public class Poller {
-    private static final Tick TICK = new Tick();
+    private static final Logger LOGGER = Logger.getLogger(Poller.class.getName());
+    private static final int WHEEL_SIZE = 64;
+    private static final String TICK_DURATION = "reporter#tick.duration";
+    private static final String TICK_LAG = "reporter#tick.lag";
 
     private ScheduledExecutorService scheduler;
 
     private ScheduledFuture<?> pollFuture;
 
+    private ExecutorService executor; // notifies the tick observers
+    private boolean ownedExecutor;
+
+    private long nextSlot; // poller thread only, System.nanoTime() the current wheel slot was expected at
+
+    @Inject
+    private Event<Schedule> scheduleEvent;
+
     @Inject
     private Event<Tick> tickEvent;
 
+    @Inject
+    private MicroprofileDatabase database;
+
     void onStart(@Observes @Initialized(ApplicationScoped.class) final Object start,
-                 @ConfigProperty(name = "geronimo.microprofile.reporter.polling.interval", defaultValue = "5000") final Long pollingInterval) {
+                 @ConfigProperty(name = "geronimo.microprofile.reporter.polling.interval", defaultValue = "5000") final Long pollingInterval,
+                 @ConfigProperty(name = "geronimo.reporter.polling.executor", defaultValue = "pool") final String executorType,
+                 @ConfigProperty(name = "geronimo.reporter.polling.executor.threads", defaultValue = "3") final Integer threads) {
         if (pollingInterval <= 0) {
             return;
         }
 
+        final Schedule schedule = new Schedule(pollingInterval);
+        scheduleEvent.fire(schedule);
+        final Map<String, Long> intervals = schedule.getIntervals();
+        final TimerWheel wheel = new TimerWheel(TimerWheel.resolution(intervals.values()), WHEEL_SIZE, intervals);
+        final long period = wheel.getResolution();
+
         final ClassLoader appLoader = Thread.currentThread().getContextClassLoader();
-        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-            final Thread thread = new Thread(r, "geronimo-microprofile-reporter-poller-" + name(start));
-            thread.setContextClassLoader(appLoader);
-            if (thread.isDaemon()) {
-                thread.setDaemon(false);
-            }
-            if (thread.getPriority() != NORM_PRIORITY) {
-                thread.setPriority(NORM_PRIORITY);
+        final String name = name(start);
+        executor = newExecutor(executorType, threads, appLoader, name);
+        final NotificationOptions options = NotificationOptions.ofExecutor(executor);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> newThread(r, "geronimo-microprofile-reporter-poller-" + name, appLoader));
+        final long periodNanos = MILLISECONDS.toNanos(period);
+        nextSlot = System.nanoTime() + periodNanos;
+        // each source run is flushed once it ended so everything it stored is there
+        final TickDispatcher dispatcher = new TickDispatcher(intervals.keySet(), tick -> tickEvent.fireAsync(tick, options), database::flush);
+        pollFuture = scheduler.scheduleAtFixedRate(() -> {
+            final long lag = NANOSECONDS.toMillis(Math.max(0, System.nanoTime() - nextSlot));
+            nextSlot += periodNanos;
+            final long duration = dispatcher.collect();
+            final Collection<String> due = wheel.advance();
+            if (!due.isEmpty()) {
+                dispatcher.dispatch(due);
             }
-            return thread;
-        });
-        pollFuture = scheduler.scheduleAtFixedRate(() -> tickEvent.fire(TICK), pollingInterval, pollingInterval, MILLISECONDS);
+            onTickEnd(duration, due.isEmpty() ? -1 : lag);
+        }, period, period, MILLISECONDS);
     }
 
     void onStop(@Observes @Destroyed(ApplicationScoped.class) final Object stop) {
@@ -80,6 +119,72 @@ public class Poller {
             }
             scheduler = null;
         }
+        if (executor != null) {
+            if (ownedExecutor) {
+                executor.shutdownNow();
+            }
+            executor = null;
+        }
+    }
+
+    // "pool" is a fixed pool of "threads" threads, "virtual" a thread per observer and tick (java 21 and later)
+    // and "managed" the default managed executor service of the container
+    private ExecutorService newExecutor(final String type, final int threads, final ClassLoader appLoader, final String name) {
+        ownedExecutor = true;
+        switch (type) {
+            case "pool":
+                break;
+            case "virtual":
+                try { // reflection to still build and run on java 8
+                    return ExecutorService.class.cast(Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null));
+                } catch (final Exception e) {
+                    LOGGER.warning("Virtual threads are not available (" + e + "), using a pool of " + threads + " threads");
+                }
+                break;
+            case "managed":
+                try {
+                    final ExecutorService managed = ExecutorService.class.cast(new InitialContext().lookup("java:comp/DefaultManagedExecutorService"));
+                    ownedExecutor = false; // the container manages its lifecycle
+                    return managed;
+                } catch (final NamingException | ClassCastException e) {
+                    LOGGER.warning("No managed executor service (" + e + "), using a pool of " + threads + " threads");
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid polling executor '" + type + "', available: pool, virtual, managed");
+        }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Invalid polling executor threads: " + threads);
+        }
+        final AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> newThread(
+                r, "geronimo-microprofile-reporter-tick-" + counter.incrementAndGet() + "-" + name, appLoader));
+    }
+
+    private Thread newThread(final Runnable runnable, final String name, final ClassLoader appLoader) {
+        final Thread thread = new Thread(runnable, name);
+        thread.setContextClassLoader(appLoader);
+        if (thread.isDaemon()) {
+            thread.setDaemon(false);
+        }
+        if (thread.getPriority() != NORM_PRIORITY) {
+            thread.setPriority(NORM_PRIORITY);
+        }
+        return thread;
+    }
+
+    // the duration of the longest source run which ended since the previous slot and the lag (how late the poller
+    // woke up, the sources run on the executor so only an overloaded machine delays it) are stored as gauges,
+    // committed with the next source run with the wal engine. a source overrunning its interval is skipped
+    private void onTickEnd(final long duration, final long lag) {
+        if (duration >= 0) {
+            ofNullable(database.getGauges().getOrCreate(TICK_DURATION, name -> database.newGaugeDatabase(name, "milliseconds")))
+                    .ifPresent(db -> db.add((double) duration));
+        }
+        if (lag >= 0) {
+            ofNullable(database.getGauges().getOrCreate(TICK_LAG, name -> database.newGaugeDatabase(name, "milliseconds")))
+                    .ifPresent(db -> db.add((double) lag));
+        }
     }
 
     private String name(final Object start) {
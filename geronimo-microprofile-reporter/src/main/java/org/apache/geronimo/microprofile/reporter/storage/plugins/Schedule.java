@@ -0,0 +1,43 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.plugins;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// fired once by the poller before it starts so the services register the polling interval (ms) of their sources,
+// a Tick is then fired each time at least one source is due
+public class Schedule {
+    static final String DEFAULT = "default";
+
+    private final Map<String, Long> intervals = new LinkedHashMap<>();
+
+    Schedule(final long defaultInterval) {
+        register(DEFAULT, defaultInterval);
+    }
+
+    public void register(final String source, final long interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Invalid polling interval for '" + source + "': " + interval);
+        }
+        intervals.put(source, interval);
+    }
+
+    Map<String, Long> getIntervals() {
+        return intervals;
+    }
+}
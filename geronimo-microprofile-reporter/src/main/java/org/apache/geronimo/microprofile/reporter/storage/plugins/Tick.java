@@ -16,4 +16,20 @@
  */
 package org.apache.geronimo.microprofile.reporter.storage.plugins;
 
-public class Tick {}
+import java.util.Collection;
+
+// fired by the poller with the sources due at this poll, see Schedule
+public class Tick {
+    private final Collection<String> due;
+    private final Collection<String> registered;
+
+    Tick(final Collection<String> due, final Collection<String> registered) {
+        this.due = due;
+        this.registered = registered;
+    }
+
+    // a source not registered in the Schedule follows geronimo.microprofile.reporter.polling.interval
+    public boolean isDue(final String source) {
+        return due.contains(registered.contains(source) ? source : Schedule.DEFAULT);
+    }
+}
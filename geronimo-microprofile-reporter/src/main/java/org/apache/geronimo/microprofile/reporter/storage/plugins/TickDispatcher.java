@@ -0,0 +1,104 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.plugins;
+
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// each due source gets its own Tick so the poller never waits for the observers: a source still running
+// its previous poll is skipped and the other ones go on, a series is still written by a single thread at a time
+final class TickDispatcher {
+    private static final Logger LOGGER = Logger.getLogger(TickDispatcher.class.getName());
+
+    private final Collection<String> registered;
+    private final Function<Tick, CompletionStage<?>> notifier;
+    private final Runnable onEnd;
+    private final Map<String, Run> running = new HashMap<>(); // poller thread only
+    private final Set<String> overrunning = new HashSet<>(); // poller thread only
+
+    TickDispatcher(final Collection<String> registered, final Function<Tick, CompletionStage<?>> notifier,
+                   final Runnable onEnd) {
+        this.registered = registered;
+        this.notifier = notifier;
+        this.onEnd = onEnd;
+    }
+
+    void dispatch(final Collection<String> due) {
+        for (final String source : due) {
+            final Run previous = running.get(source);
+            if (previous != null && !previous.isDone()) {
+                final Level level = overrunning.add(source) ? Level.WARNING : Level.FINE; // don't flood the logs each poll
+                if (LOGGER.isLoggable(level)) {
+                    LOGGER.log(level, "Reporter source '" + source + "' is still running its previous poll, skipping this one, " +
+                            "consider increasing its polling interval or geronimo.reporter.metrics.parallelism");
+                }
+                continue;
+            }
+            overrunning.remove(source);
+            final Run run = new Run();
+            running.put(source, run);
+            notifier.apply(new Tick(singletonList(source), registered)).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    LOGGER.log(Level.WARNING, "Reporter source '" + source + "' failed: " + error.getMessage(), error);
+                }
+                try {
+                    onEnd.run();
+                } finally {
+                    run.end = System.nanoTime();
+                }
+            });
+        }
+    }
+
+    // forgets the ended runs and returns the longest duration (ms) among them, -1 if none ended
+    long collect() {
+        long duration = -1;
+        for (final Iterator<Run> it = running.values().iterator(); it.hasNext(); ) {
+            final Run run = it.next();
+            if (run.isDone()) {
+                duration = Math.max(duration, NANOSECONDS.toMillis(run.end - run.start));
+                it.remove();
+            }
+        }
+        return duration;
+    }
+
+    boolean isRunning(final String source) {
+        final Run run = running.get(source);
+        return run != null && !run.isDone();
+    }
+
+    private static final class Run {
+        private final long start = System.nanoTime();
+        private volatile long end; // 0 while running
+
+        private boolean isDone() {
+            return end != 0;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.plugins;
+
+import static java.util.Collections.emptyList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// hashed timer wheel advanced by the poller thread each "resolution" ms, the intervals are rounded up
+// to a multiple of the resolution and each slot only holds the sources due when the cursor reaches it
+final class TimerWheel {
+    // under it the wheel would wake up the poller thread too often, intervals are rounded up instead
+    static final long MIN_RESOLUTION = 100;
+
+    private final long resolution;
+    private final List<List<Entry>> slots;
+    private int cursor;
+
+    TimerWheel(final long resolution, final int size, final Map<String, Long> intervals) {
+        if (resolution <= 0 || size <= 0) {
+            throw new IllegalArgumentException("Invalid timer wheel: resolution=" + resolution + ", size=" + size);
+        }
+        this.resolution = resolution;
+        this.slots = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            slots.add(new ArrayList<>());
+        }
+        intervals.forEach((source, interval) -> {
+            final Entry entry = new Entry(source, Math.max(1, (interval + resolution - 1) / resolution));
+            insert(entry, entry.period);
+        });
+    }
+
+    long getResolution() {
+        return resolution;
+    }
+
+    // moves to the next slot and returns the sources due there, they are rescheduled one period later
+    Collection<String> advance() {
+        cursor = (cursor + 1) % slots.size();
+        final List<Entry> entries = slots.get(cursor);
+        if (entries.isEmpty()) {
+            return emptyList();
+        }
+        final List<Entry> remaining = new ArrayList<>();
+        slots.set(cursor, remaining);
+        final Collection<String> due = new ArrayList<>();
+        for (final Entry entry : entries) {
+            if (entry.rounds > 0) {
+                entry.rounds--;
+                remaining.add(entry);
+            } else {
+                due.add(entry.source);
+                insert(entry, entry.period);
+            }
+        }
+        return due;
+    }
+
+    private void insert(final Entry entry, final long delay) {
+        entry.rounds = (delay - 1) / slots.size();
+        slots.get((int) ((cursor + delay) % slots.size())).add(entry);
+    }
+
+    // the greatest common divisor of the intervals, not lower than the smallest one nor MIN_RESOLUTION
+    static long resolution(final Collection<Long> intervals) {
+        long gcd = 0;
+        long min = Long.MAX_VALUE;
+        for (final long interval : intervals) {
+            gcd = gcd(gcd, interval);
+            min = Math.min(min, interval);
+        }
+        return Math.max(gcd, Math.min(MIN_RESOLUTION, min));
+    }
+
+    private static long gcd(final long a, final long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    private static final class Entry {
+        private final String source;
+        private final long period; // in slots
+        private long rounds; // remaining wheel turns before it is due
+
+        private Entry(final String source, final long period) {
+            this.source = source;
+            this.period = period;
+        }
+    }
+}
@@ -16,9 +16,19 @@
  */
 package org.apache.geronimo.microprofile.reporter.storage.plugins.health;
 
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+
+import java.util.List;
 import java.util.Map;
 
-public class CheckSnapshot {
+import org.apache.geronimo.microprofile.reporter.storage.data.ColumnCodec;
+import org.apache.geronimo.microprofile.reporter.storage.data.MemorySize;
+import org.apache.geronimo.microprofile.reporter.storage.data.Sized;
+
+public class CheckSnapshot implements Sized {
+    private static final List<String> COLUMNS = singletonList("up");
+
     private final String name;
     private final String state;
     private final Map<String, Object> data;
@@ -29,6 +39,29 @@ public class CheckSnapshot {
         this.data = data;
     }
 
+    // only the state is stored: 1 for UP, 0 for DOWN
+    static ColumnCodec<CheckSnapshot> codec(final String name) {
+        return new ColumnCodec<CheckSnapshot>() {
+            @Override
+            public List<String> getColumns() {
+                return COLUMNS;
+            }
+
+            @Override
+            public double getColumn(final CheckSnapshot value, final int index) {
+                if (index != 0) {
+                    throw new IllegalArgumentException("No column #" + index);
+                }
+                return "UP".equals(value.state) ? 1 : 0;
+            }
+
+            @Override
+            public CheckSnapshot decode(final double[] row) {
+                return new CheckSnapshot(name, row[0] == 1 ? "UP" : "DOWN", emptyMap());
+            }
+        };
+    }
+
     public String getName() {
         return name;
     }
@@ -40,4 +73,10 @@ public class CheckSnapshot {
     public Map<String, Object> getData() {
         return data;
     }
+
+    @Override
+    public long bytes() {
+        return MemorySize.OBJECT + 3 * MemorySize.REFERENCE
+                + MemorySize.of(name) + MemorySize.of(state) + MemorySize.of(data);
+    }
 }
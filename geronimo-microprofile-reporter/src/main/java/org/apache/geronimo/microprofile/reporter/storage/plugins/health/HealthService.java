@@ -16,27 +16,47 @@
  */
 package org.apache.geronimo.microprofile.reporter.storage.plugins.health;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
+import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
+import javax.enterprise.event.ObservesAsync;
 import javax.inject.Inject;
 
-import org.apache.geronimo.microprofile.reporter.storage.data.InMemoryDatabase;
+import org.apache.geronimo.microprofile.reporter.storage.data.ColumnarDatabase;
 import org.apache.geronimo.microprofile.reporter.storage.data.MicroprofileDatabase;
+import org.apache.geronimo.microprofile.reporter.storage.plugins.Schedule;
 import org.apache.geronimo.microprofile.reporter.storage.plugins.Tick;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 // cdi indirection to not require health check api and impl to be present
 @ApplicationScoped
 public class HealthService {
+    private static final String SOURCE = "health";
+
     private final HealthDataExtractor extractor = new HealthDataExtractor();
 
+    // the stored points only keep the state, the data of the last check of each series is kept aside
+    private final Map<String, CheckSnapshot> last = new ConcurrentHashMap<>();
+
     @Inject
     private HealthRegistry registry;
 
     @Inject
     private MicroprofileDatabase database;
 
+    @Inject
+    @ConfigProperty(name = "geronimo.reporter.health.interval", defaultValue = "-1")
+    private Long interval;
+
+    @PostConstruct
+    private void init() { // an evicted or rejected series must not keep its last check
+        database.getChecks().addRemovalListener(last::remove);
+    }
+
     public boolean isActive() {
         return registry.getApiType() != null;
     }
@@ -45,26 +65,37 @@ public class HealthService {
         extractor.register(check);
     }
 
+    // null if the check was not polled since the start
+    public CheckSnapshot getLastCheck(final String name) {
+        return last.get(name);
+    }
+
     public Stream<CheckSnapshot> doCheck() {
         return extractor.doCheck();
     }
 
-    public void onTick(@Observes final Tick tick) {
-        if (isActive()) {
+    // checks can be slow (database, remote calls...) so they can be polled less often than the metrics
+    void onSchedule(@Observes final Schedule schedule) {
+        if (interval > 0) {
+            schedule.register(SOURCE, interval);
+        }
+    }
+
+    public void onTick(@ObservesAsync final Tick tick) {
+        if (isActive() && tick.isDue(SOURCE)) {
             doCheck().forEach(this::updateHealthCheck);
         }
     }
 
     private void updateHealthCheck(final CheckSnapshot healthCheckResponse) {
-        final String name = healthCheckResponse.getName();
-        InMemoryDatabase<CheckSnapshot> db = database.getChecks().get(name);
-        if (db == null) {
-            db = new InMemoryDatabase<>(database.getAlpha(), database.getBucketSize(), "check");
-            final InMemoryDatabase<CheckSnapshot> existing = database.getChecks().putIfAbsent(name, db);
-            if (existing != null) {
-                db = existing;
+        final ColumnarDatabase<CheckSnapshot> db = database.getChecks().getOrCreate(healthCheckResponse.getName(),
+                name -> database.newColumnarDatabase(SOURCE + "#" + name, "check", CheckSnapshot.codec(name)));
+        if (db != null) {
+            db.add(healthCheckResponse);
+            last.put(healthCheckResponse.getName(), healthCheckResponse);
+            if (database.getChecks().get(healthCheckResponse.getName()) != db) { // evicted meanwhile
+                last.remove(healthCheckResponse.getName());
             }
         }
-        db.add(healthCheckResponse);
     }
 }
@@ -16,7 +16,46 @@
  */
 package org.apache.geronimo.microprofile.reporter.storage.plugins.metrics;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.unmodifiableList;
+
+import java.util.List;
+
+import org.apache.geronimo.microprofile.reporter.storage.data.ColumnCodec;
+
 public class MeterSnapshot {
+    static final ColumnCodec<MeterSnapshot> CODEC = new ColumnCodec<MeterSnapshot>() {
+        private final List<String> columns = unmodifiableList(asList("count", "rateMean", "rate1", "rate5", "rate15"));
+
+        @Override
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        @Override
+        public double getColumn(final MeterSnapshot value, final int index) {
+            switch (index) {
+                case 0:
+                    return value.count;
+                case 1:
+                    return value.rateMean;
+                case 2:
+                    return value.rate1;
+                case 3:
+                    return value.rate5;
+                case 4:
+                    return value.rate15;
+                default:
+                    throw new IllegalArgumentException("No column #" + index);
+            }
+        }
+
+        @Override
+        public MeterSnapshot decode(final double[] row) {
+            return new MeterSnapshot((long) row[0], row[1], row[2], row[3], row[4]);
+        }
+    };
+
     private final long count;
     private final double rateMean;
     private final double rate1;
@@ -16,27 +16,51 @@
  */
 package org.apache.geronimo.microprofile.reporter.storage.plugins.metrics;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyMap;
 import static java.util.Optional.ofNullable;
+import static java.util.stream.Collectors.toList;
 import static org.eclipse.microprofile.metrics.MetricRegistry.Type.BASE;
 import static org.eclipse.microprofile.metrics.MetricRegistry.Type.VENDOR;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
+import javax.enterprise.event.ObservesAsync;
 import javax.inject.Inject;
 
 import org.apache.geronimo.microprofile.reporter.storage.data.InMemoryDatabase;
 import org.apache.geronimo.microprofile.reporter.storage.data.MicroprofileDatabase;
+import org.apache.geronimo.microprofile.reporter.storage.data.SeriesRegistry;
+import org.apache.geronimo.microprofile.reporter.storage.plugins.Schedule;
 import org.apache.geronimo.microprofile.reporter.storage.plugins.Tick;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.metrics.MetricRegistry;
 import org.eclipse.microprofile.metrics.Snapshot;
 import org.eclipse.microprofile.metrics.annotation.RegistryType;
 
 @ApplicationScoped
 public class MetricsService {
+    private static final String SOURCE = "metrics:";
+    private static final List<String> KINDS = asList("counters", "gauges", "histograms", "meters", "timers");
+
     @Inject
     private MicroprofileDatabase database;
 
@@ -51,68 +75,146 @@ public class MetricsService {
     @Inject
     private MetricRegistry applicationRegistry;
 
+    @Inject
+    @ConfigProperty(name = "geronimo.reporter.metrics.parallelism", defaultValue = "1")
+    private Integer parallelism;
+
+    @Inject
+    @ConfigProperty(name = "geronimo.reporter.metrics.chunkSize", defaultValue = "64")
+    private Integer chunkSize;
+
+    @Inject
+    @ConfigProperty(name = "geronimo.reporter.metrics.dedup", defaultValue = "false")
+    private Boolean dedup;
+
+    @Inject
+    @ConfigProperty(name = "geronimo.reporter.metrics.dedup.heartbeat", defaultValue = "60000")
+    private Long heartbeat;
+
+    @Inject
+    @ConfigProperty(name = "geronimo.reporter.metrics.intervals", defaultValue = "")
+    private String intervals;
+
     private Map<String, MetricRegistry> metricsIndex;
+    private Map<String, Pattern> overrides = emptyMap(); // source -> metric storage names polled at its own interval
+    // storage name -> override source ("" for none), sources run concurrently
+    private final Map<String, String> sources = new ConcurrentHashMap<>();
+    private ForkJoinPool pool; // null means the metrics are collected by the poller thread
 
-    private void updateMetrics(final String type, final MetricRegistry registry) {
-        registry.getCounters().forEach((name, counter) -> {
+    // each registry and metric type is split in chunks of "chunkSize" metrics, a chunk is a task of the pool
+    private void updateMetrics(final Tick tick, final boolean overridesDue, final String type, final MetricRegistry registry,
+                               final List<Runnable> tasks) {
+        final long interval = heartbeat; // unboxed, the series databases have primitive addIfChanged flavors
+        chunk(tick, overridesDue, "counters", type, database.getCounters(), registry::getCounters, (name, counter) -> {
             final String virtualName = getMetricStorageName(type, name);
             final long count = counter.getCount();
-            getDb(database.getCounters(), virtualName, registry, name).add(count);
-        });
+            getDb(database.getCounters(), database::newCounterDatabase, virtualName, registry, name).ifPresent(db -> {
+                if (dedup) {
+                    db.addIfChanged(count, interval);
+                } else {
+                    db.add(count);
+                }
+            });
+        }, tasks);
 
-        registry.getGauges().forEach((name, gauge) -> {
+        chunk(tick, overridesDue, "gauges", type, database.getGauges(), registry::getGauges, (name, gauge) -> {
             final String virtualName = getMetricStorageName(type, name);
             final Object value = gauge.getValue();
             if (Number.class.isInstance(value)) {
                 try {
-                    getDb(database.getGauges(), virtualName, registry, name).add(Number.class.cast(value).doubleValue());
+                    final double number = Number.class.cast(value).doubleValue();
+                    getDb(database.getGauges(), database::newGaugeDatabase, virtualName, registry, name).ifPresent(db -> {
+                        if (dedup) {
+                            db.addIfChanged(number, interval);
+                        } else {
+                            db.add(number);
+                        }
+                    });
                 } catch (final NullPointerException | NumberFormatException nfe) {
                     // ignore, we can't do much if the value is not a double
                 }
             } // else ignore, will not be able to do anything of it anyway
-        });
+        }, tasks);
 
-        registry.getHistograms().forEach((name, histogram) -> {
+        chunk(tick, overridesDue, "histograms", type, database.getHistograms(), registry::getHistograms, (name, histogram) -> {
             final String virtualName = getMetricStorageName(type, name);
             final Snapshot snapshot = histogram.getSnapshot();
-            getDb(database.getHistograms(), virtualName, registry, name)
-                    .add(new SnapshotStat(snapshot.size(), snapshot.getMedian(), snapshot.getMean(), snapshot.getMin(), snapshot.getMax(), snapshot.getStdDev(),
-                            snapshot.get75thPercentile(), snapshot.get95thPercentile(), snapshot.get98thPercentile(), snapshot.get99thPercentile(), snapshot.get999thPercentile()));
-        });
+            getDb(database.getHistograms(), (series, unit) -> database.newColumnarDatabase(series, unit, SnapshotStat.CODEC), virtualName, registry, name)
+                    .ifPresent(db -> db.add(new SnapshotStat(snapshot.size(), snapshot.getMedian(), snapshot.getMean(), snapshot.getMin(), snapshot.getMax(), snapshot.getStdDev(),
+                            snapshot.get75thPercentile(), snapshot.get95thPercentile(), snapshot.get98thPercentile(), snapshot.get99thPercentile(), snapshot.get999thPercentile())));
+        }, tasks);
 
-        registry.getMeters().forEach((name, meter) -> {
+        chunk(tick, overridesDue, "meters", type, database.getMeters(), registry::getMeters, (name, meter) -> {
             final String virtualName = getMetricStorageName(type, name);
             final MeterSnapshot snapshot = new MeterSnapshot(
                     meter.getCount(), meter.getMeanRate(), meter.getOneMinuteRate(), meter.getFiveMinuteRate(), meter.getFifteenMinuteRate());
-            getDb(database.getMeters(), virtualName, registry, name).add(snapshot);
-        });
+            getDb(database.getMeters(), (series, unit) -> database.newColumnarDatabase(series, unit, MeterSnapshot.CODEC), virtualName, registry, name).ifPresent(db -> {
+                if (dedup) { // the rates decay so it mainly skips the meters never marked
+                    db.addIfChanged(snapshot, interval);
+                } else {
+                    db.add(snapshot);
+                }
+            });
+        }, tasks);
 
-        registry.getTimers().forEach((name, timer) -> {
+        chunk(tick, overridesDue, "timers", type, database.getTimers(), registry::getTimers, (name, timer) -> {
             final String virtualName = getMetricStorageName(type, name);
             final Snapshot snapshot = timer.getSnapshot();
             final TimerSnapshot timerSnapshot = new TimerSnapshot(new MeterSnapshot(
                     timer.getCount(), timer.getMeanRate(), timer.getOneMinuteRate(), timer.getFiveMinuteRate(), timer.getFifteenMinuteRate()),
                     new SnapshotStat(snapshot.size(), snapshot.getMedian(), snapshot.getMean(), snapshot.getMin(), snapshot.getMax(), snapshot.getStdDev(),
                     snapshot.get75thPercentile(), snapshot.get95thPercentile(), snapshot.get98thPercentile(), snapshot.get99thPercentile(), snapshot.get999thPercentile()));
-            getDb(database.getTimers(), virtualName, registry, name).add(timerSnapshot);
-        });
+            getDb(database.getTimers(), (series, unit) -> database.newColumnarDatabase(series, unit, TimerSnapshot.CODEC), virtualName, registry, name).ifPresent(db -> db.add(timerSnapshot));
+        }, tasks);
     }
 
-    // alternatively we can decorate the registries and register/unregister following the registry lifecycle
-    // shouldnt be worth it for now
-    private <T> InMemoryDatabase<T> getDb(final Map<String, InMemoryDatabase<T>> registry,
-                                          final String virtualName, final MetricRegistry source,
-                                          final String key) {
-        InMemoryDatabase<T> db = registry.get(virtualName);
-        if (db == null) {
-            db = new InMemoryDatabase<>(database.getAlpha(), database.getBucketSize(),
-                    ofNullable(source.getMetadata().get(key).getUnit()).orElse(""));
-            final InMemoryDatabase<T> existing = registry.putIfAbsent(virtualName, db);
-            if (existing != null) {
-                db = existing;
+    // overridesDue: one of the glob sources is due in this tick, else only the kind source can make the metrics due
+    private <M> void chunk(final Tick tick, final boolean overridesDue, final String kind, final String type,
+                           final SeriesRegistry<?> series, final Supplier<Map<String, M>> metrics,
+                           final BiConsumer<String, M> updater, final List<Runnable> tasks) {
+        if (!overridesDue && !tick.isDue(SOURCE + kind)) { // the registries copy their metrics, don't do it for nothing
+            return;
+        }
+        final Map<String, M> all = metrics.get();
+        if (all.isEmpty()) {
+            return;
+        }
+        final List<Map.Entry<String, M>> entries = overrides.isEmpty() ?
+                new ArrayList<>(all.entrySet()) :
+                all.entrySet().stream()
+                   .filter(it -> tick.isDue(source(kind, series, getMetricStorageName(type, it.getKey()))))
+                   .collect(toList());
+        for (int i = 0; i < entries.size(); i += chunkSize) {
+            final List<Map.Entry<String, M>> chunk = entries.subList(i, Math.min(entries.size(), i + chunkSize));
+            tasks.add(() -> chunk.forEach(it -> updater.accept(it.getKey(), it.getValue())));
+        }
+    }
+
+    // the first override matching the metric else its kind, cached while the metric has a series
+    // (dropped by the series registry removal listener) so the globs are matched once per metric
+    private String source(final String kind, final SeriesRegistry<?> series, final String virtualName) {
+        String source = sources.get(virtualName);
+        if (source == null) {
+            source = overrides.entrySet().stream()
+                    .filter(it -> it.getValue().matcher(virtualName).matches())
+                    .map(Map.Entry::getKey)
+                    .findFirst()
+                    .orElse("");
+            if (series.get(virtualName) != null) {
+                sources.put(virtualName, source);
             }
         }
-        return db;
+        return source.isEmpty() ? SOURCE + kind : source;
+    }
+
+    // alternatively we can decorate the registries and register/unregister following the registry lifecycle
+    // shouldnt be worth it for now
+    private <D extends InMemoryDatabase<?>> Optional<D> getDb(final SeriesRegistry<D> registry,
+                                                              final BiFunction<String, String, D> factory,
+                                                              final String virtualName, final MetricRegistry source,
+                                                              final String key) {
+        return ofNullable(registry.getOrCreate(virtualName, series -> factory.apply(
+                series, ofNullable(source.getMetadata().get(key).getUnit()).orElse(""))));
     }
 
     private String getMetricStorageName(final String type, final String name) {
@@ -125,9 +227,80 @@ public class MetricsService {
         metricsIndex.put("vendor", vendorRegistry);
         metricsIndex.put("base", baseRegistry);
         metricsIndex.put("application", applicationRegistry);
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Invalid metrics chunk size: " + chunkSize);
+        }
+        Stream.<SeriesRegistry<?>>of(database.getCounters(), database.getGauges(), database.getHistograms(),
+                database.getMeters(), database.getTimers())
+                .forEach(it -> it.addRemovalListener(sources::remove));
+        if (parallelism > 1) {
+            final ClassLoader appLoader = Thread.currentThread().getContextClassLoader();
+            pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+                final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                thread.setName("geronimo-microprofile-reporter-metrics-" + thread.getPoolIndex());
+                thread.setContextClassLoader(appLoader);
+                return thread;
+            }, null, false);
+        }
+    }
+
+    // "<kind or glob>:<interval ms>" comma separated, kinds are counters, gauges, histograms, meters and timers,
+    // globs (* and ?) match "<registry>#<metric name>" and win over the kinds
+    void onSchedule(@Observes final Schedule schedule) {
+        if (intervals.trim().isEmpty()) {
+            return;
+        }
+        final Map<String, Pattern> patterns = new LinkedHashMap<>();
+        for (final String entry : intervals.split(",")) {
+            final int sep = entry.lastIndexOf(':');
+            if (sep <= 0) {
+                throw new IllegalArgumentException("Invalid metrics interval '" + entry + "', expected <kind or glob>:<interval ms>");
+            }
+            final String key = entry.substring(0, sep).trim();
+            final String source = SOURCE + key;
+            if (key.indexOf('#') >= 0) {
+                patterns.put(source, toPattern(key));
+            } else if (!KINDS.contains(key)) {
+                throw new IllegalArgumentException("Invalid metric kind '" + key + "', available: " + KINDS + " (or a <registry>#<name> glob)");
+            }
+            schedule.register(source, Long.parseLong(entry.substring(sep + 1).trim()));
+        }
+        overrides = patterns;
+    }
+
+    private static Pattern toPattern(final String glob) {
+        final StringBuilder regex = new StringBuilder();
+        for (final char c : glob.toCharArray()) {
+            switch (c) {
+                case '*':
+                    regex.append(".*");
+                    break;
+                case '?':
+                    regex.append('.');
+                    break;
+                default:
+                    regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString());
     }
 
-    void onTick(@Observes final Tick tick) {
-        metricsIndex.forEach(this::updateMetrics);
+    @PreDestroy
+    private void destroy() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    // the tick returns once all the chunks are stored so the poller flush sees them
+    void onTick(@ObservesAsync final Tick tick) {
+        final List<Runnable> tasks = new ArrayList<>();
+        final boolean overridesDue = overrides.keySet().stream().anyMatch(tick::isDue);
+        metricsIndex.forEach((type, registry) -> updateMetrics(tick, overridesDue, type, registry, tasks));
+        if (pool == null) {
+            tasks.forEach(Runnable::run);
+            return;
+        }
+        tasks.stream().map(pool::submit).collect(toList()).forEach(ForkJoinTask::join);
     }
 }
@@ -16,7 +16,59 @@
  */
 package org.apache.geronimo.microprofile.reporter.storage.plugins.metrics;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.unmodifiableList;
+
+import java.util.List;
+
+import org.apache.geronimo.microprofile.reporter.storage.data.ColumnCodec;
+
 public class SnapshotStat {
+    static final ColumnCodec<SnapshotStat> CODEC = new ColumnCodec<SnapshotStat>() {
+        private final List<String> columns = unmodifiableList(asList(
+                "size", "median", "mean", "min", "max", "stdDev", "pc75", "pc95", "pc98", "pc99", "pc999"));
+
+        @Override
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        @Override
+        public double getColumn(final SnapshotStat value, final int index) {
+            switch (index) {
+                case 0:
+                    return value.size;
+                case 1:
+                    return value.median;
+                case 2:
+                    return value.mean;
+                case 3:
+                    return value.min;
+                case 4:
+                    return value.max;
+                case 5:
+                    return value.stdDev;
+                case 6:
+                    return value.pc75;
+                case 7:
+                    return value.pc95;
+                case 8:
+                    return value.pc98;
+                case 9:
+                    return value.pc99;
+                case 10:
+                    return value.pc999;
+                default:
+                    throw new IllegalArgumentException("No column #" + index);
+            }
+        }
+
+        @Override
+        public SnapshotStat decode(final double[] row) {
+            return new SnapshotStat((int) row[0], row[1], row[2], row[3], row[4], row[5],
+                    row[6], row[7], row[8], row[9], row[10]);
+        }
+    };
 
     private final int size;
 
@@ -16,7 +16,46 @@
  */
 package org.apache.geronimo.microprofile.reporter.storage.plugins.metrics;
 
+import static java.util.Collections.unmodifiableList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.geronimo.microprofile.reporter.storage.data.ColumnCodec;
+
 public class TimerSnapshot {
+    // meter columns then histogram ones
+    static final ColumnCodec<TimerSnapshot> CODEC = new ColumnCodec<TimerSnapshot>() {
+        private final int meterColumns = MeterSnapshot.CODEC.getColumns().size();
+        private final List<String> columns;
+
+        {
+            final List<String> columns = new ArrayList<>(MeterSnapshot.CODEC.getColumns());
+            columns.addAll(SnapshotStat.CODEC.getColumns());
+            this.columns = unmodifiableList(columns);
+        }
+
+        @Override
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        @Override
+        public double getColumn(final TimerSnapshot value, final int index) {
+            return index < meterColumns ?
+                    MeterSnapshot.CODEC.getColumn(value.meter, index) :
+                    SnapshotStat.CODEC.getColumn(value.histogram, index - meterColumns);
+        }
+
+        @Override
+        public TimerSnapshot decode(final double[] row) {
+            return new TimerSnapshot(
+                    MeterSnapshot.CODEC.decode(Arrays.copyOfRange(row, 0, meterColumns)),
+                    SnapshotStat.CODEC.decode(Arrays.copyOfRange(row, meterColumns, row.length)));
+        }
+    };
+
     private final MeterSnapshot meter;
     private final SnapshotStat histogram;
 
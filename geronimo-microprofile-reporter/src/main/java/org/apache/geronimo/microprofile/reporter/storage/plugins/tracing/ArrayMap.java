@@ -0,0 +1,130 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.plugins.tracing;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.geronimo.microprofile.reporter.storage.data.MemorySize;
+import org.apache.geronimo.microprofile.reporter.storage.data.Sized;
+
+// immutable copy of the few tags or log fields of a span: keys and values alternate in a single array,
+// lookups are linear which is faster than hashing for so few entries. keys are interned so not accounted,
+// values are not: ids, ports, urls or peers have a high cardinality and would fill the bounded dictionary
+final class ArrayMap extends AbstractMap<String, Object> implements Sized {
+    static final ArrayMap EMPTY = new ArrayMap(new Object[0]);
+
+    private final Object[] entries;
+
+    private ArrayMap(final Object[] entries) {
+        this.entries = entries;
+    }
+
+    static ArrayMap copy(final Map<?, ?> source, final SpanDictionary dictionary) {
+        if (source == null || source.isEmpty()) {
+            return EMPTY;
+        }
+        if (ArrayMap.class.isInstance(source)) {
+            return ArrayMap.class.cast(source);
+        }
+        final Object[] entries = new Object[source.size() * 2];
+        int i = 0;
+        for (final Map.Entry<?, ?> entry : source.entrySet()) {
+            if (i == entries.length) { // concurrently modified
+                break;
+            }
+            entries[i++] = dictionary.intern(String.valueOf(entry.getKey()));
+            entries[i++] = entry.getValue();
+        }
+        return new ArrayMap(i == entries.length ? entries : Arrays.copyOf(entries, i));
+    }
+
+    @Override
+    public Object get(final Object key) {
+        for (int i = 0; i < entries.length; i += 2) {
+            if (entries[i].equals(key)) {
+                return entries[i + 1];
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        for (int i = 0; i < entries.length; i += 2) {
+            if (entries[i].equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return entries.length / 2;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<Entry<String, Object>>() {
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < entries.length;
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        final Entry<String, Object> entry = new SimpleImmutableEntry<>(
+                                String.class.cast(entries[index]), entries[index + 1]);
+                        index += 2;
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return ArrayMap.this.size();
+            }
+        };
+    }
+
+    @Override
+    public long bytes() {
+        if (entries.length == 0) {
+            return 0; // shared
+        }
+        long bytes = MemorySize.OBJECT + MemorySize.REFERENCE + MemorySize.array(entries.length, (int) MemorySize.REFERENCE);
+        for (int i = 1; i < entries.length; i += 2) {
+            bytes += MemorySize.of(entries[i]);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.plugins.tracing;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.unmodifiableList;
+
+import java.util.List;
+
+import org.apache.geronimo.microprofile.reporter.storage.data.ColumnCodec;
+
+// rate, errors and duration (microseconds) of the spans of an operation during a poll interval
+public class RedSnapshot {
+    static final ColumnCodec<RedSnapshot> CODEC = new ColumnCodec<RedSnapshot>() {
+        private final List<String> columns = unmodifiableList(asList(
+                "count", "rate", "errors", "mean", "pc50", "pc75", "pc95", "pc99", "pc999", "max"));
+
+        @Override
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        @Override
+        public double getColumn(final RedSnapshot value, final int index) {
+            switch (index) {
+                case 0:
+                    return value.count;
+                case 1:
+                    return value.rate;
+                case 2:
+                    return value.errors;
+                case 3:
+                    return value.mean;
+                case 4:
+                    return value.pc50;
+                case 5:
+                    return value.pc75;
+                case 6:
+                    return value.pc95;
+                case 7:
+                    return value.pc99;
+                case 8:
+                    return value.pc999;
+                case 9:
+                    return value.max;
+                default:
+                    throw new IllegalArgumentException("No column #" + index);
+            }
+        }
+
+        @Override
+        public RedSnapshot decode(final double[] row) {
+            return new RedSnapshot((long) row[0], row[1], (long) row[2], row[3],
+                    row[4], row[5], row[6], row[7], row[8], row[9]);
+        }
+    };
+
+    private final long count;
+    private final double rate;
+    private final long errors;
+    private final double mean;
+    private final double pc50;
+    private final double pc75;
+    private final double pc95;
+    private final double pc99;
+    private final double pc999;
+    private final double max;
+
+    RedSnapshot(final long count, final double rate, final long errors, final double mean,
+                final double pc50, final double pc75, final double pc95, final double pc99, final double pc999,
+                final double max) {
+        this.count = count;
+        this.rate = rate;
+        this.errors = errors;
+        this.mean = mean;
+        this.pc50 = pc50;
+        this.pc75 = pc75;
+        this.pc95 = pc95;
+        this.pc99 = pc99;
+        this.pc999 = pc999;
+        this.max = max;
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.plugins.tracing;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// span names, kinds and tag keys come from a small set, the retained spans share a single instance of each.
+// it is bounded: once full new strings are kept as they are, they are just not shared
+class SpanDictionary {
+    static final SpanDictionary NONE = new SpanDictionary(0);
+
+    private final ConcurrentMap<String, String> values = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    SpanDictionary(final int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    String intern(final String value) {
+        if (value == null) {
+            return null;
+        }
+        final String existing = values.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        if (values.size() >= maxSize) {
+            return value;
+        }
+        final String previous = values.putIfAbsent(value, value);
+        return previous == null ? value : previous;
+    }
+
+    int size() {
+        return values.size();
+    }
+}
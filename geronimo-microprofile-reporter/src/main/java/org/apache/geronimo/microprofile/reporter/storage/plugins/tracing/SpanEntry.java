@@ -16,44 +16,64 @@
  */
 package org.apache.geronimo.microprofile.reporter.storage.plugins.tracing;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.unmodifiableList;
+
 import java.util.Collection;
 import java.util.Map;
 
-public class SpanEntry {
-    private final String spanId;
-    private final String traceId;
-    private final String parentId;
+import org.apache.geronimo.microprofile.reporter.storage.data.MemorySize;
+import org.apache.geronimo.microprofile.reporter.storage.data.Sized;
+
+// tens of thousands of them are retained so it is compact: numeric identifiers are longs,
+// name and kind are shared (interned by the mapper) and tags and logs are immutable arrays
+public class SpanEntry implements Sized {
+    private static final LogEntry[] NO_LOGS = new LogEntry[0];
+
+    private final long spanId;
+    private final long traceId;
+    private final long parentId;
+    private final byte spanIdFormat;
+    private final byte traceIdFormat;
+    private final byte parentIdFormat;
+    private final String[] textIds; // only when an identifier is not numeric, indexed as the "id" methods
     private final String name;
     private final long timestamp;
     private final long duration;
     private final String kind;
-    private final Map<String, Object> tags;
-    private final Collection<LogEntry> getLogs;
-
-    SpanEntry(final String spanId, final String traceId, final String parentId, final String name,
-                      final long timestamp, final long duration, final String kind, final Map<String, Object> tags,
-                      final Collection<LogEntry> getLogs) {
-        this.spanId = spanId;
-        this.traceId = traceId;
-        this.parentId = parentId;
+    private final ArrayMap tags;
+    private final LogEntry[] logs;
+
+    SpanEntry(final Object spanId, final Object traceId, final Object parentId, final String name,
+              final long timestamp, final long duration, final String kind, final Map<String, Object> tags,
+              final Collection<LogEntry> logs) {
+        this.spanIdFormat = SpanIds.format(spanId);
+        this.traceIdFormat = SpanIds.format(traceId);
+        this.parentIdFormat = SpanIds.format(parentId);
+        this.spanId = numeric(spanId, spanIdFormat);
+        this.traceId = numeric(traceId, traceIdFormat);
+        this.parentId = numeric(parentId, parentIdFormat);
+        this.textIds = spanIdFormat == SpanIds.TEXT || traceIdFormat == SpanIds.TEXT || parentIdFormat == SpanIds.TEXT ?
+                new String[]{text(spanId, spanIdFormat), text(traceId, traceIdFormat), text(parentId, parentIdFormat)} :
+                null;
         this.name = name;
         this.timestamp = timestamp;
         this.duration = duration;
         this.kind = kind;
-        this.tags = tags;
-        this.getLogs = getLogs;
+        this.tags = ArrayMap.copy(tags, SpanDictionary.NONE);
+        this.logs = logs == null || logs.isEmpty() ? NO_LOGS : logs.toArray(new LogEntry[logs.size()]);
     }
 
     public String getSpanId() {
-        return spanId;
+        return id(spanId, spanIdFormat, 0);
     }
 
     public String getTraceId() {
-        return traceId;
+        return id(traceId, traceIdFormat, 1);
     }
 
     public String getParentId() {
-        return parentId;
+        return id(parentId, parentIdFormat, 2);
     }
 
     public String getName() {
@@ -77,18 +97,61 @@ public class SpanEntry {
     }
 
     public Collection<LogEntry> getGetLogs() {
-        return getLogs;
+        return unmodifiableList(asList(logs));
+    }
+
+    private String id(final long value, final byte format, final int index) {
+        switch (format) {
+            case SpanIds.NULL:
+                return null;
+            case SpanIds.TEXT:
+                return textIds[index];
+            default:
+                return SpanIds.toString(value, format);
+        }
+    }
+
+    private static long numeric(final Object id, final byte format) {
+        return format == SpanIds.NULL || format == SpanIds.TEXT ? 0 : SpanIds.value(id, format);
+    }
+
+    private static String text(final Object id, final byte format) {
+        return format == SpanIds.TEXT ? String.valueOf(id) : null;
     }
 
-    public static class LogEntry {
+    // opentracing convention, the "error" tag is set on failed spans
+    public boolean isError() {
+        final Object error = tags.get("error");
+        return Boolean.TRUE.equals(error) || "true".equals(error);
+    }
+
+    @Override
+    public long bytes() { // name, kind and tag keys are shared
+        long bytes = MemorySize.OBJECT + 5 * Long.BYTES + 3 + 5 * MemorySize.REFERENCE + tags.bytes();
+        if (textIds != null) {
+            bytes += MemorySize.array(textIds.length, (int) MemorySize.REFERENCE);
+            for (final String id : textIds) {
+                bytes += MemorySize.of(id);
+            }
+        }
+        if (logs.length > 0) {
+            bytes += MemorySize.array(logs.length, (int) MemorySize.REFERENCE);
+            for (final LogEntry log : logs) {
+                bytes += log.bytes();
+            }
+        }
+        return bytes;
+    }
+
+    public static class LogEntry implements Sized {
 
         private final long timestampMicros;
 
-        private final Map<String, Object> fields;
+        private final ArrayMap fields;
 
         LogEntry(final long timestampMicros, final Map<String, Object> fields) {
             this.timestampMicros = timestampMicros;
-            this.fields = fields;
+            this.fields = ArrayMap.copy(fields, SpanDictionary.NONE);
         }
 
         public long getTimestampMicros() {
@@ -98,5 +161,10 @@ public class SpanEntry {
         public Map<String, Object> getFields() {
             return fields;
         }
+
+        @Override
+        public long bytes() {
+            return MemorySize.OBJECT + Long.BYTES + MemorySize.REFERENCE + fields.bytes();
+        }
     }
 }
@@ -0,0 +1,100 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.plugins.tracing;
+
+// span identifiers are usually numbers (counter generator) or hexadecimal strings,
+// they are kept as a long and a format able to rebuild the exact string, other ones stay strings
+final class SpanIds {
+    static final byte NULL = 0;
+    static final byte TEXT = 1;
+    static final byte DECIMAL = 2;
+    private static final byte HEX = 3; // + length of the string, to keep the leading zeros
+
+    private SpanIds() {
+        // no-op
+    }
+
+    static byte format(final Object id) {
+        if (id == null) {
+            return NULL;
+        }
+        if (Long.class.isInstance(id) || Integer.class.isInstance(id)) {
+            return DECIMAL;
+        }
+        final String value = String.valueOf(id);
+        if (isDecimal(value)) {
+            return DECIMAL;
+        }
+        if (isHex(value)) {
+            return (byte) (HEX + value.length());
+        }
+        return TEXT;
+    }
+
+    // for DECIMAL and hexadecimal formats
+    static long value(final Object id, final byte format) {
+        if (Number.class.isInstance(id)) {
+            return Number.class.cast(id).longValue();
+        }
+        return format == DECIMAL ? Long.parseLong(String.valueOf(id)) : Long.parseUnsignedLong(String.valueOf(id), 16);
+    }
+
+    static String toString(final long value, final byte format) {
+        if (format == DECIMAL) {
+            return Long.toString(value);
+        }
+        final String hex = Long.toHexString(value);
+        final int length = format - HEX;
+        if (hex.length() >= length) {
+            return hex;
+        }
+        final StringBuilder builder = new StringBuilder(length);
+        for (int i = hex.length(); i < length; i++) {
+            builder.append('0');
+        }
+        return builder.append(hex).toString();
+    }
+
+    // only the canonical form, "007" would not be rebuilt as is
+    private static boolean isDecimal(final String value) {
+        final int length = value.length();
+        if (length == 0 || length > 18 || (value.charAt(0) == '0' && length > 1)) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isHex(final String value) {
+        final int length = value.length();
+        if (length == 0 || length > 16) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
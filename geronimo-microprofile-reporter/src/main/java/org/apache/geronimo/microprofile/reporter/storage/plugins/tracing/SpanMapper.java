@@ -16,93 +16,184 @@
  */
 package org.apache.geronimo.microprofile.reporter.storage.plugins.tracing;
 
+import static java.lang.invoke.MethodType.methodType;
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.toList;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 
 import io.opentracing.Span;
 
+// getters are bound once: when SpanImpl is visible from this module the accessors are generated classes
+// calling them directly (LambdaMetafactory), else method handles, no Method.invoke nor long boxing per span
 @ApplicationScoped
 public class SpanMapper {
+    private static final Logger LOGGER = Logger.getLogger(SpanMapper.class.getName());
+    private static final String SPAN_IMPL = "org.apache.geronimo.microprofile.opentracing.common.impl.SpanImpl";
+    private static final int DICTIONARY_SIZE = 4096;
+
+    private final SpanDictionary dictionary = new SpanDictionary(DICTIONARY_SIZE);
+
     private boolean active;
 
-    private Method getSpanId;
-    private Method getTraceId;
-    private Method getParentId;
-    private Method getName;
-    private Method getTimestamp;
-    private Method getDuration;
-    private Method getKind;
-    private Method getTags;
-    private Method getLogs;
-    private Method logGetTimestampMicros;
-    private Method logGetFields;
+    private Function<Object, Object> getSpanId;
+    private Function<Object, Object> getTraceId;
+    private Function<Object, Object> getParentId;
+    private Function<Object, Object> getName;
+    private ToLongFunction<Object> getTimestamp;
+    private ToLongFunction<Object> getDuration;
+    private Function<Object, Object> getKind;
+    private Function<Object, Object> getTags;
+    private Function<Object, Object> getLogs;
+    private ToLongFunction<Object> logGetTimestampMicros;
+    private Function<Object, Object> logGetFields;
 
     @PostConstruct
     private void init() {
         try {
-            final Class<?> spanImpl = Thread.currentThread().getContextClassLoader()
-                    .loadClass("org.apache.geronimo.microprofile.opentracing.common.impl.SpanImpl");
-            getTraceId = spanImpl.getMethod("getTraceId");
-            getSpanId = spanImpl.getMethod("getId");
-            getParentId = spanImpl.getMethod("getParentId");
-            getName = spanImpl.getMethod("getName");
-            getTimestamp = spanImpl.getMethod("getTimestamp");
-            getDuration = spanImpl.getMethod("getDuration");
-            getKind = spanImpl.getMethod("getKind");
-            getTags = spanImpl.getMethod("getTags");
-            getLogs = spanImpl.getMethod("getLogs");
-
-            final Class<?> logType = Class.class
-                    .cast(ParameterizedType.class.cast(getLogs.getGenericReturnType()).getActualTypeArguments()[0]);
-            logGetTimestampMicros = logType.getMethod("getTimestampMicros");
-            logGetFields = logType.getMethod("getFields");
-
-            active = true;
-        } catch (final Exception e) {
+            final Class<?> spanImpl = Thread.currentThread().getContextClassLoader().loadClass(SPAN_IMPL);
+            bind(spanImpl, isVisible(spanImpl));
+        } catch (final Exception | LinkageError e) {
             active = false;
         }
     }
 
+    // the span type is a parameter for tests and benchmarks, "generate" selects generated accessors over method handles
+    void bind(final Class<?> spanImpl, final boolean generate) throws ReflectiveOperationException {
+        final Method getLogsMethod = spanImpl.getMethod("getLogs");
+        final Class<?> logType = Class.class
+                .cast(ParameterizedType.class.cast(getLogsMethod.getGenericReturnType()).getActualTypeArguments()[0]);
+
+        getTraceId = getter(spanImpl.getMethod("getTraceId"), generate);
+        getSpanId = getter(spanImpl.getMethod("getId"), generate);
+        getParentId = getter(spanImpl.getMethod("getParentId"), generate);
+        getName = getter(spanImpl.getMethod("getName"), generate);
+        getTimestamp = longGetter(spanImpl.getMethod("getTimestamp"), generate);
+        getDuration = longGetter(spanImpl.getMethod("getDuration"), generate);
+        getKind = getter(spanImpl.getMethod("getKind"), generate);
+        getTags = getter(spanImpl.getMethod("getTags"), generate);
+        getLogs = getter(getLogsMethod, generate);
+        logGetTimestampMicros = longGetter(logType.getMethod("getTimestampMicros"), generate);
+        logGetFields = getter(logType.getMethod("getFields"), generate);
+        active = true;
+    }
+
     public SpanEntry map(final Span span) {
+        return map((Object) span);
+    }
+
+    SpanEntry map(final Object span) {
         if (!active) {
             return null;
         }
+        final Collection<SpanEntry.LogEntry> logs = ofNullable((Collection<?>) getLogs.apply(span))
+                .map(it -> it.stream()
+                        .map(log -> new SpanEntry.LogEntry(
+                                logGetTimestampMicros.applyAsLong(log),
+                                ArrayMap.copy(Map.class.cast(logGetFields.apply(log)), dictionary)))
+                        .collect(toList()))
+                .orElseGet(Collections::emptyList);
+        return new SpanEntry( // identifiers are kept as the tracer generated them, SpanEntry compacts them
+                getSpanId.apply(span),
+                getTraceId.apply(span),
+                getParentId.apply(span),
+                dictionary.intern(stringify(getName.apply(span))),
+                getTimestamp.applyAsLong(span),
+                getDuration.applyAsLong(span),
+                dictionary.intern(stringify(getKind.apply(span))),
+                ArrayMap.copy(Map.class.cast(getTags.apply(span)), dictionary), logs);
+    }
+
+    // generated classes belong to this module, they must be able to link SpanImpl
+    private static boolean isVisible(final Class<?> spanImpl) {
         try {
-            final Collection<SpanEntry.LogEntry> logs = ofNullable((Collection<?>) getLogs.invoke(span))
-                    .map(it -> it.stream().map(log -> {
-                        try {
-                            return new SpanEntry.LogEntry(Long.class.cast(logGetTimestampMicros.invoke(log)), Map.class.cast(logGetFields.invoke(log)));
-                        } catch (final IllegalAccessException e) {
-                            throw new IllegalStateException(e);
-                        } catch (final InvocationTargetException e) {
-                            throw new IllegalStateException(e.getTargetException());
-                        }
-                    }).collect(toList()))
-                    .orElseGet(Collections::emptyList);
-            return new SpanEntry(
-                    stringify(getSpanId.invoke(span)),
-                    stringify(getTraceId.invoke(span)),
-                    stringify(getParentId.invoke(span)),
-                    stringify(getName.invoke(span)),
-                    Long.class.cast(getTimestamp.invoke(span)),
-                    Long.class.cast(getDuration.invoke(span)),
-                    stringify(getKind.invoke(span)),
-                    Map.class.cast(getTags.invoke(span)), logs);
-        } catch (final IllegalAccessException e) {
-            throw new IllegalStateException(e);
-        } catch (final InvocationTargetException e) {
-            throw new IllegalStateException(e.getTargetException());
+            return Class.forName(spanImpl.getName(), false, SpanMapper.class.getClassLoader()) == spanImpl;
+        } catch (final ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> getter(final Method method, final boolean generate)
+            throws ReflectiveOperationException {
+        final MethodHandle handle = unreflect(method);
+        if (generate) {
+            try {
+                final CallSite site = LambdaMetafactory.metafactory(
+                        MethodHandles.lookup(), "apply", methodType(Function.class),
+                        methodType(Object.class, Object.class), handle, handle.type().wrap());
+                return (Function<Object, Object>) site.getTarget().invokeExact();
+            } catch (final Exception | LinkageError e) { // fallback on the handle
+                LOGGER.log(Level.FINE, "Can't generate the accessor of " + method + ", using a method handle", e);
+            } catch (final Error e) {
+                throw e;
+            } catch (final Throwable throwable) {
+                throw new IllegalStateException(throwable);
+            }
+        }
+        final MethodHandle generic = handle.asType(methodType(Object.class, Object.class));
+        return span -> {
+            try {
+                return generic.invokeExact(span);
+            } catch (final RuntimeException | Error e) {
+                throw e;
+            } catch (final Throwable throwable) {
+                throw new IllegalStateException(throwable);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ToLongFunction<Object> longGetter(final Method method, final boolean generate)
+            throws ReflectiveOperationException {
+        final MethodHandle handle = unreflect(method);
+        if (generate) {
+            try {
+                final CallSite site = LambdaMetafactory.metafactory(
+                        MethodHandles.lookup(), "applyAsLong", methodType(ToLongFunction.class),
+                        methodType(long.class, Object.class), handle,
+                        methodType(long.class, method.getDeclaringClass()));
+                return (ToLongFunction<Object>) site.getTarget().invokeExact();
+            } catch (final Exception | LinkageError e) { // fallback on the handle
+                LOGGER.log(Level.FINE, "Can't generate the accessor of " + method + ", using a method handle", e);
+            } catch (final Error e) {
+                throw e;
+            } catch (final Throwable throwable) {
+                throw new IllegalStateException(throwable);
+            }
+        }
+        final MethodHandle generic = handle.asType(methodType(long.class, Object.class));
+        return span -> {
+            try {
+                return (long) generic.invokeExact(span);
+            } catch (final RuntimeException | Error e) {
+                throw e;
+            } catch (final Throwable throwable) {
+                throw new IllegalStateException(throwable);
+            }
+        };
+    }
+
+    private static MethodHandle unreflect(final Method method) throws IllegalAccessException {
+        if (!method.isAccessible()) {
+            method.setAccessible(true); // public getter of a non public class
         }
+        return MethodHandles.lookup().unreflect(method);
     }
 
     private static String stringify(final Object value) {
@@ -0,0 +1,149 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.plugins.tracing;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.geronimo.microprofile.reporter.storage.data.ColumnarDatabase;
+import org.apache.geronimo.microprofile.reporter.storage.data.MicroprofileDatabase;
+import org.apache.geronimo.microprofile.reporter.storage.data.SeriesRegistry;
+
+// RED (rate, errors, duration) metrics of each operation ("<kind>#<name>") computed from all the captured spans,
+// before any sampling, and stored as a series each poll so percentiles do not depend on the span reservoir
+class SpanMetrics {
+    static final String SOURCE = "operations"; // not registered in the schedule, follows the default polling interval
+
+    private final MicroprofileDatabase database;
+    private final int maxOperations;
+    private final ConcurrentMap<String, Operation> operations = new ConcurrentHashMap<>();
+    private final LongAdder ignored = new LongAdder();
+
+    SpanMetrics(final MicroprofileDatabase database, final int maxOperations) {
+        this.database = database;
+        this.maxOperations = maxOperations;
+    }
+
+    void add(final SpanEntry span) {
+        final String key = (span.getKind() == null ? "internal" : span.getKind()) + "#" + span.getName();
+        Operation operation = operations.get(key);
+        if (operation == null) {
+            if (operations.size() >= maxOperations) {
+                ignored.increment();
+                return;
+            }
+            operation = operations.computeIfAbsent(key, k -> new Operation(System.currentTimeMillis()));
+        }
+        operation.add(span.getDuration(), span.isError());
+    }
+
+    // spans not aggregated because there were already "maxOperations" operations
+    long getIgnored() {
+        return ignored.sum();
+    }
+
+    // called by the "operations" source runs on the tick executor, never concurrently since the tick dispatcher
+    // does not start a source still running its previous run
+    void onTick(final long now) {
+        final SeriesRegistry<ColumnarDatabase<RedSnapshot>> registry = database.getOperations();
+        final Iterator<Map.Entry<String, Operation>> iterator = operations.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, Operation> entry = iterator.next();
+            final RedSnapshot snapshot = entry.getValue().snapshot(now);
+            if (snapshot == null) { // idle, forget it once its series was evicted to free its slot
+                if (registry.get(entry.getKey()) == null) {
+                    iterator.remove();
+                }
+                continue;
+            }
+            final ColumnarDatabase<RedSnapshot> db = registry.getOrCreate(entry.getKey(),
+                    name -> database.newColumnarDatabase(name, "microseconds", RedSnapshot.CODEC));
+            if (db != null) {
+                db.add(snapshot);
+            }
+        }
+    }
+
+    // written by the span consumer, read by the "operations" source run which keeps the previous totals to compute
+    // the interval: they are plain fields since a source never runs twice at the same time (see TickDispatcher)
+    static class Operation {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder duration = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private long lastSnapshot;
+        private long previousCount;
+        private long previousErrors;
+        private long previousDuration;
+        private long[] previousBuckets = new long[LatencyHistogram.BUCKETS];
+
+        Operation(final long start) {
+            this.lastSnapshot = start;
+        }
+
+        void add(final long durationMicros, final boolean error) {
+            histogram.record(durationMicros);
+            duration.add(durationMicros);
+            if (error) {
+                errors.increment();
+            }
+            max.accumulateAndGet(durationMicros, Math::max);
+            count.increment(); // last so a concurrent snapshot never sees more spans than buckets
+        }
+
+        // null when no span ended since the previous snapshot
+        RedSnapshot snapshot(final long now) {
+            final long totalCount = count.sum();
+            final long intervalCount = totalCount - previousCount;
+            if (intervalCount <= 0) {
+                lastSnapshot = now;
+                return null;
+            }
+            final long[] buckets = histogram.snapshot();
+            final long[] interval = new long[buckets.length];
+            long total = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                interval[i] = buckets[i] - previousBuckets[i];
+                total += interval[i];
+            }
+            final long totalErrors = errors.sum();
+            final long totalDuration = duration.sum();
+            final double seconds = Math.max(1, now - lastSnapshot) / 1000.;
+            final RedSnapshot snapshot = new RedSnapshot(
+                    intervalCount, intervalCount / seconds, totalErrors - previousErrors,
+                    (totalDuration - previousDuration) / (double) intervalCount,
+                    LatencyHistogram.percentile(interval, total, .5),
+                    LatencyHistogram.percentile(interval, total, .75),
+                    LatencyHistogram.percentile(interval, total, .95),
+                    LatencyHistogram.percentile(interval, total, .99),
+                    LatencyHistogram.percentile(interval, total, .999),
+                    max.getAndSet(0));
+            lastSnapshot = now;
+            previousCount = totalCount;
+            previousErrors = totalErrors;
+            previousDuration = totalDuration;
+            previousBuckets = buckets;
+            return snapshot;
+        }
+    }
+}
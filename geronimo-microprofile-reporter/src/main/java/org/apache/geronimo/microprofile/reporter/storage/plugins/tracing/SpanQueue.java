@@ -0,0 +1,80 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.plugins.tracing;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+// bounded multi producers single consumer ring: producers claim a slot with a CAS on the producer index
+// (no lock, fails instead of waiting when full), the consumer frees the slot before moving its index
+// so a producer never overwrites a value not consumed yet
+final class SpanQueue<E> {
+    private final AtomicReferenceArray<E> buffer;
+    private final int capacity;
+    private final int mask;
+    private final AtomicLong producerIndex = new AtomicLong();
+    private final AtomicLong consumerIndex = new AtomicLong();
+
+    SpanQueue(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid queue capacity: " + capacity);
+        }
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.buffer = new AtomicReferenceArray<>(this.capacity);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    int size() {
+        return (int) Math.max(0, producerIndex.get() - consumerIndex.get());
+    }
+
+    // false when full, never blocks
+    boolean offer(final E value) {
+        long index;
+        do {
+            index = producerIndex.get();
+            if (index - consumerIndex.get() >= capacity) {
+                return false;
+            }
+        } while (!producerIndex.compareAndSet(index, index + 1));
+        buffer.lazySet((int) index & mask, value);
+        return true;
+    }
+
+    // consumer thread only, stops at the first claimed slot not written yet
+    int drain(final Consumer<E> consumer, final int limit) {
+        long index = consumerIndex.get();
+        int count = 0;
+        while (count < limit) {
+            final int slot = (int) index & mask;
+            final E value = buffer.get(slot);
+            if (value == null) {
+                break;
+            }
+            buffer.lazySet(slot, null);
+            consumerIndex.lazySet(++index);
+            count++;
+            consumer.accept(value);
+        }
+        return count;
+    }
+}
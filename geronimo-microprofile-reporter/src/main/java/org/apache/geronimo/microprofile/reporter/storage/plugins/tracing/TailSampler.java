@@ -0,0 +1,172 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.plugins.tracing;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ObjDoubleConsumer;
+
+// tail sampling: spans are buffered by trace until the trace is done (its local root span finished or no span
+// came for "wait" ms), then the whole trace is stored with a boosted weight if one of its spans is slow or
+// has an error tag, else it is stored with a "sampling" probability.
+// at most "maxSpans" spans are buffered, over it the least recently updated traces are decided early
+class TailSampler {
+    private final long wait;
+    private final long latency;
+    private final double sampling;
+    private final double boost;
+    private final int maxSpans;
+    private final ObjDoubleConsumer<SpanEntry> sink;
+
+    private final LinkedHashMap<String, Trace> traces = new LinkedHashMap<>(16, .75f, true); // least recently updated first
+    private final Map<String, Double> decisions; // weight of the recently decided traces, 0 means dropped, for late spans
+    private int buffered;
+
+    private final LongAdder boosted = new LongAdder();
+    private final LongAdder sampledOut = new LongAdder();
+
+    TailSampler(final long wait, final long latencyMicros, final double sampling, final double boost, final int maxSpans,
+                final ObjDoubleConsumer<SpanEntry> sink) {
+        if (sampling < 0 || sampling > 1) {
+            throw new IllegalArgumentException("Invalid sampling rate: " + sampling + ", expected a value in [0, 1]");
+        }
+        if (boost < 1 || maxSpans <= 0) {
+            throw new IllegalArgumentException("Invalid tail sampling, boost=" + boost + ", maxSpans=" + maxSpans);
+        }
+        this.wait = wait;
+        this.latency = latencyMicros;
+        this.sampling = sampling;
+        this.boost = boost;
+        this.maxSpans = maxSpans;
+        this.sink = sink;
+        this.decisions = new LinkedHashMap<String, Double>() {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Double> eldest) {
+                return size() > maxSpans;
+            }
+        };
+    }
+
+    synchronized void add(final SpanEntry span, final long now) {
+        if (span.getTraceId() == null) {
+            decide(span, isInteresting(span));
+            return;
+        }
+        final Double decided = decisions.get(span.getTraceId());
+        if (decided != null) { // late span, follows its trace unless it is interesting itself
+            final double weight = isInteresting(span) ? boost : decided;
+            if (weight > 0) {
+                sink.accept(span, weight);
+            }
+            return;
+        }
+
+        Trace trace = traces.get(span.getTraceId());
+        if (trace == null) {
+            trace = new Trace();
+            traces.put(span.getTraceId(), trace);
+        }
+        trace.spans.add(span);
+        trace.interesting |= isInteresting(span);
+        trace.lastUpdate = now;
+        buffered++;
+        if (span.getParentId() == null) { // local root, nothing else should come
+            traces.remove(span.getTraceId());
+            decide(span.getTraceId(), trace);
+        }
+        while (buffered > maxSpans) {
+            decideEldest();
+        }
+    }
+
+    // decides the traces without a span for "wait" ms
+    synchronized void flush(final long now) {
+        final Iterator<Map.Entry<String, Trace>> iterator = traces.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, Trace> next = iterator.next();
+            if (now - next.getValue().lastUpdate < wait) {
+                return; // the next ones were updated later
+            }
+            iterator.remove();
+            decide(next.getKey(), next.getValue());
+        }
+    }
+
+    synchronized int getBuffered() {
+        return buffered;
+    }
+
+    // traces kept with a boosted weight because they were slow or failed
+    long getBoosted() {
+        return boosted.sum();
+    }
+
+    // traces not stored because of the sampling rate
+    long getSampledOut() {
+        return sampledOut.sum();
+    }
+
+    private void decideEldest() {
+        final Iterator<Map.Entry<String, Trace>> iterator = traces.entrySet().iterator();
+        final Map.Entry<String, Trace> eldest = iterator.next();
+        iterator.remove();
+        decide(eldest.getKey(), eldest.getValue());
+    }
+
+    private void decide(final String traceId, final Trace trace) {
+        buffered -= trace.spans.size();
+        final double weight = weight(trace.interesting);
+        decisions.put(traceId, weight);
+        if (weight > 0) {
+            trace.spans.forEach(span -> sink.accept(span, weight));
+        }
+    }
+
+    private void decide(final SpanEntry span, final boolean interesting) {
+        final double weight = weight(interesting);
+        if (weight > 0) {
+            sink.accept(span, weight);
+        }
+    }
+
+    private double weight(final boolean interesting) {
+        if (interesting) {
+            boosted.increment();
+            return boost;
+        }
+        if (sampling >= 1 || ThreadLocalRandom.current().nextDouble() < sampling) {
+            return 1;
+        }
+        sampledOut.increment();
+        return 0;
+    }
+
+    private boolean isInteresting(final SpanEntry span) {
+        return span.getDuration() >= latency || span.isError();
+    }
+
+    private static final class Trace {
+        private final List<SpanEntry> spans = new ArrayList<>();
+        private boolean interesting;
+        private long lastUpdate;
+    }
+}
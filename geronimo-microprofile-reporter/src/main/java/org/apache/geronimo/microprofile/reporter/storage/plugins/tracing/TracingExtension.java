@@ -16,15 +16,20 @@
  */
 package org.apache.geronimo.microprofile.reporter.storage.plugins.tracing;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
 import javax.enterprise.event.Observes;
 import javax.enterprise.inject.spi.AfterBeanDiscovery;
 import javax.enterprise.inject.spi.AfterDeploymentValidation;
 import javax.enterprise.inject.spi.Bean;
 import javax.enterprise.inject.spi.BeanManager;
 import javax.enterprise.inject.spi.BeforeBeanDiscovery;
+import javax.enterprise.inject.spi.BeforeShutdown;
 import javax.enterprise.inject.spi.Extension;
 
 import org.apache.geronimo.microprofile.reporter.storage.data.MicroprofileDatabase;
+import org.apache.geronimo.microprofile.reporter.storage.plugins.Tick;
+import org.eclipse.microprofile.config.Config;
 
 public class TracingExtension implements Extension {
     private boolean active;
@@ -35,6 +40,28 @@ public class TracingExtension implements Extension {
         return active;
     }
 
+    // spans lost because the asynchronous capture queue was full
+    public long getDropped() {
+        return service == null ? 0 : service.getDropped();
+    }
+
+    public int getPending() {
+        return service == null ? 0 : service.getPending();
+    }
+
+    public boolean isTailSampling() {
+        return service != null && service.getSampler() != null;
+    }
+
+    // traces kept with a boosted priority by the tail sampling because they were slow or failed
+    public long getBoostedTraces() {
+        return isTailSampling() ? service.getSampler().getBoosted() : 0;
+    }
+
+    public long getSampledOutTraces() {
+        return isTailSampling() ? service.getSampler().getSampledOut() : 0;
+    }
+
     void onStart(@Observes final BeforeBeanDiscovery beforeBeanDiscovery) {
         final ClassLoader loader = Thread.currentThread().getContextClassLoader();
         try {
@@ -52,12 +79,49 @@ public class TracingExtension implements Extension {
             afterBeanDiscovery.addObserverMethod()
                               .observedType(finishedSpan)
                               .notifyWith(e -> service.onSpan(e.getEvent()));
+            afterBeanDiscovery.addObserverMethod()
+                              .observedType(Tick.class)
+                              .async(true) // like the other tick observers, fired with Event#fireAsync
+                              .notifyWith(e -> {
+                                  if (service != null && service.getMetrics() != null &&
+                                          Tick.class.cast(e.getEvent()).isDue(SpanMetrics.SOURCE)) {
+                                      service.getMetrics().onTick(System.currentTimeMillis());
+                                  }
+                              });
         }
     }
 
     void createService(@Observes final AfterDeploymentValidation afterDeploymentValidation, final BeanManager manager) {
         if (active) {
-            service = new TracingService(lookup(manager, MicroprofileDatabase.class), lookup(manager, SpanMapper.class));
+            final Config config = lookup(manager, Config.class);
+            final boolean async = config.getOptionalValue("geronimo.reporter.tracing.async", Boolean.class).orElse(true);
+            final int queueSize = config.getOptionalValue("geronimo.reporter.tracing.queue.size", Integer.class).orElse(8192);
+            if (async && queueSize <= 0) {
+                throw new IllegalArgumentException("Invalid span queue size: " + queueSize);
+            }
+            final boolean tail = config.getOptionalValue("geronimo.reporter.tracing.tail.active", Boolean.class).orElse(false);
+            if (tail && !async) { // the consumer thread flushes the done traces, the request threads must not
+                throw new IllegalArgumentException("Tail sampling requires geronimo.reporter.tracing.async=true");
+            }
+            final MicroprofileDatabase database = lookup(manager, MicroprofileDatabase.class);
+            final TailSampler sampler = tail ?
+                    new TailSampler(
+                            config.getOptionalValue("geronimo.reporter.tracing.tail.wait", Long.class).orElse(2000L),
+                            MILLISECONDS.toMicros(config.getOptionalValue("geronimo.reporter.tracing.tail.latency", Long.class).orElse(1000L)),
+                            config.getOptionalValue("geronimo.reporter.tracing.tail.sampling", Double.class).orElse(0.1),
+                            config.getOptionalValue("geronimo.reporter.tracing.tail.boost", Double.class).orElse(1000.),
+                            config.getOptionalValue("geronimo.reporter.tracing.tail.maxSpans", Integer.class).orElse(10000),
+                            (span, weight) -> database.getSpans().add(span, weight)) :
+                    null;
+            final int maxOperations = config.getOptionalValue("geronimo.reporter.tracing.red.maxOperations", Integer.class).orElse(1000);
+            service = new TracingService(database, lookup(manager, SpanMapper.class), async ? queueSize : 0, sampler,
+                    maxOperations > 0 ? new SpanMetrics(database, maxOperations) : null);
+        }
+    }
+
+    void stopService(@Observes final BeforeShutdown beforeShutdown) {
+        if (service != null) {
+            service.stop();
         }
     }
 
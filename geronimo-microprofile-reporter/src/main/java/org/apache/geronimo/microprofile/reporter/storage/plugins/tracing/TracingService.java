@@ -16,6 +16,14 @@
  */
 package org.apache.geronimo.microprofile.reporter.storage.plugins.tracing;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 import javax.enterprise.inject.Vetoed;
 
 import org.apache.geronimo.microprofile.opentracing.common.impl.FinishedSpan;
@@ -23,14 +31,41 @@ import org.apache.geronimo.microprofile.reporter.storage.data.MicroprofileDataba
 
 import io.opentracing.Span;
 
+// synchronous mode maps and stores on the thread finishing the span,
+// asynchronous mode only enqueues it there (dropping it if the queue is full) and a daemon thread does the work.
+// with a tail sampler (asynchronous mode only) the mapped spans go through it and it decides which traces are stored,
+// RED metrics see all the mapped spans
 @Vetoed
 class TracingService {
+    private static final Logger LOGGER = Logger.getLogger(TracingService.class.getName());
+    private static final int BATCH_SIZE = 256;
+    private static final long IDLE_WAIT = MILLISECONDS.toNanos(10);
+
     private final MicroprofileDatabase database;
     private final SpanMapper mapper;
+    private final SpanQueue<Span> queue;
+    private final TailSampler sampler;
+    private final SpanMetrics metrics;
+    private final LongAdder dropped = new LongAdder();
+    private final Thread consumer;
+    private volatile boolean running;
 
-    TracingService(final MicroprofileDatabase database, final SpanMapper mapper) {
+    TracingService(final MicroprofileDatabase database, final SpanMapper mapper, final int queueSize,
+                   final TailSampler sampler, final SpanMetrics metrics) {
         this.database = database;
         this.mapper = mapper;
+        this.sampler = sampler;
+        this.metrics = metrics;
+        if (queueSize > 0) {
+            queue = new SpanQueue<>(queueSize);
+            consumer = new Thread(this::consume, "geronimo-microprofile-reporter-spans");
+            consumer.setDaemon(true);
+            running = true;
+            consumer.start();
+        } else {
+            queue = null;
+            consumer = null;
+        }
     }
 
     void onSpan(final Object event) {
@@ -39,10 +74,82 @@ class TracingService {
         if (!value.getClass().getName().equals("org.apache.geronimo.microprofile.opentracing.common.impl.SpanImpl")) {
             return;
         }
-        final SpanEntry mapped = mapper.map(value);
+        if (queue == null) {
+            store(value);
+        } else if (!queue.offer(value)) {
+            dropped.increment();
+        }
+    }
+
+    // spans not captured because the queue was full
+    long getDropped() {
+        return dropped.sum();
+    }
+
+    int getPending() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    TailSampler getSampler() {
+        return sampler;
+    }
+
+    SpanMetrics getMetrics() {
+        return metrics;
+    }
+
+    // lets the consumer store what was already captured
+    void stop() {
+        if (consumer != null) {
+            running = false;
+            LockSupport.unpark(consumer);
+            try {
+                consumer.join(SECONDS.toMillis(5));
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (sampler != null) {
+            sampler.flush(Long.MAX_VALUE);
+        }
+    }
+
+    private void consume() {
+        while (running) {
+            final int drained = drain();
+            if (sampler != null) {
+                sampler.flush(System.currentTimeMillis());
+            }
+            if (drained == 0) {
+                LockSupport.parkNanos(this, IDLE_WAIT);
+            }
+        }
+        while (drain() > 0) {
+            // flush the remaining spans
+        }
+    }
+
+    private int drain() {
+        try {
+            return queue.drain(this::store, BATCH_SIZE);
+        } catch (final RuntimeException re) { // don't kill the consumer for a span
+            LOGGER.log(Level.WARNING, re.getMessage(), re);
+            return 1;
+        }
+    }
+
+    private void store(final Span span) {
+        final SpanEntry mapped = mapper.map(span);
         if (mapped == null) {
             return;
         }
-        database.getSpans().add(mapped);
+        if (metrics != null) {
+            metrics.add(mapped);
+        }
+        if (sampler == null) {
+            database.getSpans().add(mapped);
+            return;
+        }
+        sampler.add(mapped, System.currentTimeMillis());
     }
 }
@@ -0,0 +1,83 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class ChangeDetectionTest {
+    private static final Resolutions NO_ROLLUP = new Resolutions(5000, 80000, new long[0], new int[0], 1000);
+
+    @Test
+    public void counter() {
+        final NumericCodec<Long> codec = new NumericCodec<>(value -> (long) value);
+        final LongSeriesDatabase db = new LongSeriesDatabase(new NumericRingStorage<>(16, codec), codec, "", NO_ROLLUP);
+        assertTrue(db.addIfChanged(1000, 0, 3000));
+        assertFalse(db.addIfChanged(2000, 0, 3000));
+        assertTrue(db.addIfChanged(3000, 5, 3000));
+        assertFalse(db.addIfChanged(4000, 5, 3000));
+        assertFalse(db.addIfChanged(5000, 5, 3000));
+        assertTrue(db.addIfChanged(6000, 5, 3000)); // heartbeat
+        assertEquals(6000, db.getLastChecked());
+        assertEquals(asList(1000L, 3000L, 6000L), db.snapshot().stream().map(InMemoryDatabase.Value::getTimestamp).collect(toList()));
+        assertEquals(asList(0L, 5L, 5L), db.snapshot().stream().map(InMemoryDatabase.Value::getValue).collect(toList()));
+    }
+
+    @Test
+    public void gaugeWithoutHeartbeat() {
+        final NumericCodec<Double> codec = new NumericCodec<>(Double::valueOf);
+        final DoubleSeriesDatabase db = new DoubleSeriesDatabase(new NumericRingStorage<>(16, codec), codec, "", NO_ROLLUP);
+        for (int i = 1; i <= 10; i++) {
+            db.addIfChanged(i * 1000, Double.NaN, 0);
+        }
+        assertTrue(db.addIfChanged(11000, 2.5, 0));
+        assertEquals(2, db.snapshot().size());
+        assertEquals(11000, db.getLastChecked());
+    }
+
+    @Test
+    public void columns() {
+        final ColumnCodec<double[]> codec = new ColumnCodec<double[]>() {
+            @Override
+            public List<String> getColumns() {
+                return asList("a", "b");
+            }
+
+            @Override
+            public double getColumn(final double[] value, final int index) {
+                return value[index];
+            }
+
+            @Override
+            public double[] decode(final double[] row) {
+                return row;
+            }
+        };
+        final ColumnarDatabase<double[]> db = new ColumnarDatabase<>(new RingStorage<>(16, codec), codec, "", NO_ROLLUP);
+        assertTrue(db.addIfChanged(1000, new double[]{1, 2}, 0));
+        assertFalse(db.addIfChanged(2000, new double[]{1, 2}, 0));
+        assertTrue(db.addIfChanged(3000, new double[]{1, 3}, 0));
+        assertEquals(2, db.snapshot().size());
+    }
+}
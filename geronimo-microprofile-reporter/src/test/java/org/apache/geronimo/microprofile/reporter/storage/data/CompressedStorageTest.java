@@ -0,0 +1,122 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CompressedStorageTest {
+    @Test
+    public void roundTrip() {
+        final CompressedNumericStorage<Double> storage = new CompressedNumericStorage<>(1000, 16, new NumericCodec<>(Double::valueOf));
+        final long[] timestamps = {1000, 6000, 11001, 15990, 16000, 100000, 99000, 99000, Long.MAX_VALUE / 2};
+        final double[] values = {0, 1.5, 1.5, -3, Double.NaN, 1e300, Double.MIN_VALUE, 42, 42};
+        for (int i = 0; i < timestamps.length; i++) {
+            storage.add(timestamps[i], values[i]);
+        }
+        final Points points = storage.points(0);
+        assertEquals(timestamps.length, points.size());
+        for (int i = 0; i < timestamps.length; i++) {
+            assertEquals(timestamps[i], points.timestamp(i));
+            assertEquals(values[i], points.value(i), 0);
+        }
+    }
+
+    @Test
+    public void queries() {
+        final CompressedStorage<double[]> storage = new CompressedStorage<>(100, 4, new ColumnCodec<double[]>() {
+            @Override
+            public List<String> getColumns() {
+                return asList("a", "b");
+            }
+
+            @Override
+            public double getColumn(final double[] value, final int index) {
+                return value[index];
+            }
+
+            @Override
+            public double[] decode(final double[] row) {
+                return row;
+            }
+        });
+        assertEquals(null, storage.latest());
+        for (int i = 0; i < 10; i++) { // 2 frozen blocks and a head
+            storage.add(i * 10, new double[]{i, -i});
+        }
+        assertEquals(asList(20L, 30L, 40L, 50L), storage.range(15, 50).stream().map(InMemoryDatabase.Value::getTimestamp).collect(toList()));
+        assertEquals(asList(7., 8., 9.), storage.last(3).stream().map(it -> it.getValue()[0]).collect(toList()));
+        assertEquals(-9., storage.latest().getValue()[1], 0);
+        assertEquals(10, storage.snapshot().size());
+
+        final PointIterator iterator = storage.iterator(1, 30, 45);
+        assertTrue(iterator.next());
+        assertEquals(30, iterator.timestamp());
+        assertEquals(-3., iterator.value(), 0);
+        assertTrue(iterator.next());
+        assertEquals(-4., iterator.value(), 0);
+        assertFalse(iterator.next());
+    }
+
+    @Test
+    public void retention() {
+        final CompressedNumericStorage<Long> storage = new CompressedNumericStorage<>(10, 4, new NumericCodec<>(value -> (long) value));
+        for (int i = 0; i < 30; i++) {
+            storage.add(i, i);
+        }
+        final List<Long> values = storage.snapshot().stream().map(InMemoryDatabase.Value::getValue).collect(toList());
+        assertTrue(values.size() >= 10 && values.size() < 10 + 2 * 4); // block granularity
+        assertEquals(29L, values.get(values.size() - 1).longValue());
+    }
+
+    @Test
+    public void shrink() {
+        final CompressedNumericStorage<Long> storage = new CompressedNumericStorage<>(100, 4, new NumericCodec<>(value -> (long) value));
+        for (int i = 0; i < 100; i++) {
+            storage.add(i, i);
+        }
+        final long bytes = storage.bytes();
+        assertTrue(storage.resize(10));
+        assertTrue(storage.bytes() < bytes);
+        final List<Long> values = storage.snapshot().stream().map(InMemoryDatabase.Value::getValue).collect(toList());
+        assertTrue(values.size() >= 10 && values.size() < 10 + 2 * 4); // newest blocks
+        assertEquals(99L, values.get(values.size() - 1).longValue());
+    }
+
+    @Test
+    public void smallerThanRawPoints() { // a day of a slowly growing counter polled every 5s
+        final CompressedNumericStorage<Long> storage = new CompressedNumericStorage<>(17280, 120, new NumericCodec<>(value -> (long) value));
+        final Random random = new Random(1234);
+        long timestamp = System.currentTimeMillis();
+        long value = 0;
+        for (int i = 0; i < 17280; i++) {
+            timestamp += 5000 + random.nextInt(3) - 1;
+            value += random.nextInt(20);
+            storage.add(timestamp, value);
+        }
+        assertEquals(17280, storage.points(0).size());
+        assertTrue(storage.bytes() < 17280 * 16 / 5); // raw is a long and a double
+    }
+}
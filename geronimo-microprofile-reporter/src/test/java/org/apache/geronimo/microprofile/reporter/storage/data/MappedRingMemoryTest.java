@@ -0,0 +1,83 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+public class MappedRingMemoryTest {
+    private final NumericCodec<Long> codec = new NumericCodec<>(value -> (long) value);
+
+    @Test
+    public void reopen() throws IOException {
+        final Path file = Files.createTempDirectory("mapped-ring").resolve("counter.series");
+        try {
+            final NumericRingStorage<Long> storage = new NumericRingStorage<>(new MappedRingMemory(file, 3, 1), codec);
+            for (int i = 1; i <= 4; i++) {
+                storage.add(i, i * 10.);
+            }
+
+            final NumericRingStorage<Long> reopened = new NumericRingStorage<>(new MappedRingMemory(file, 3, 1), codec);
+            assertEquals(asList(20L, 30L, 40L), reopened.snapshot().stream().map(InMemoryDatabase.Value::getValue).collect(toList()));
+            reopened.add(5, 50.);
+            assertEquals(asList(30L, 40L, 50L), reopened.snapshot().stream().map(InMemoryDatabase.Value::getValue).collect(toList()));
+            assertEquals(5, reopened.latest().getTimestamp());
+        } finally {
+            Files.delete(file);
+            Files.delete(file.getParent());
+        }
+    }
+
+    @Test
+    public void layoutChangeResets() throws IOException {
+        final Path file = Files.createTempDirectory("mapped-ring").resolve("counter.series");
+        try {
+            final NumericRingStorage<Long> storage = new NumericRingStorage<>(new MappedRingMemory(file, 3, 1), codec);
+            storage.add(1, 10.);
+            assertEquals(0, new NumericRingStorage<>(new MappedRingMemory(file, 5, 1), codec).snapshot().size());
+        } finally {
+            Files.delete(file);
+            Files.delete(file.getParent());
+        }
+    }
+
+    @Test
+    public void previousLayoutVersionResets() throws IOException {
+        final Path file = Files.createTempDirectory("mapped-ring").resolve("counter.series");
+        try {
+            final NumericRingStorage<Long> storage = new NumericRingStorage<>(new MappedRingMemory(file, 3, 1), codec);
+            storage.add(1, 10.);
+            try (final FileChannel channel = FileChannel.open(file, WRITE)) { // same header, "capacity" slots layout
+                channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, 0x47524D31), 0);
+            }
+            assertEquals(0, new NumericRingStorage<>(new MappedRingMemory(file, 3, 1), codec).snapshot().size());
+        } finally {
+            Files.delete(file);
+            Files.delete(file.getParent());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+public class MemoryBudgetTest {
+    @Test
+    public void fixedBytesOverBudgetDoNotShrinkTheSpans() {
+        final InMemoryDatabase<Double> ring = new InMemoryDatabase<>(
+                new NumericRingStorage<>(1000, new NumericCodec<>(Double::valueOf)), "");
+        final InMemoryDatabase<String> spans = new InMemoryDatabase<>(
+                new StripedReservoirStorage<>(0.015, 100, 4, MemorySize::of), "");
+        final MemoryBudget budget = new MemoryBudget(ring.bytes() / 2, 100);
+        for (int poll = 0; poll < 10; poll++) {
+            fill(spans, 100, poll * 1000L);
+            budget.enforce(ring.bytes() + spans.bytes(), () -> Stream.of(ring, spans));
+        }
+        assertEquals(100, spans.capacity());
+        assertEquals(1, budget.getRatio(), 0);
+    }
+
+    @Test
+    public void shrinksTheResizableShareAndGrowsBack() {
+        final InMemoryDatabase<Double> ring = new InMemoryDatabase<>(
+                new NumericRingStorage<>(10000, new NumericCodec<>(Double::valueOf)), "");
+        final InMemoryDatabase<String> series = new InMemoryDatabase<>(new ReservoirStorage<>(0.015, 1000), "");
+        fill(series, 1000, 0);
+        final MemoryBudget budget = new MemoryBudget(ring.bytes() + series.bytes() / 2, 1000);
+        for (int poll = 1; poll <= 10; poll++) { // stable, does not compound down to the minimum
+            budget.enforce(ring.bytes() + series.bytes(), () -> Stream.of(ring, series));
+            assertEquals(500, series.capacity());
+            fill(series, 1000, poll * 1000L);
+        }
+
+        // the ring series was evicted, its bytes are available again
+        for (int poll = 11; poll <= 20; poll++) {
+            budget.enforce(series.bytes(), () -> Stream.of(series));
+            fill(series, 1000, poll * 1000L);
+        }
+        assertEquals(1000, series.capacity());
+        assertEquals(1000, series.snapshot().size());
+        assertEquals(1, budget.getRatio(), 0);
+    }
+
+    private static void fill(final InMemoryDatabase<String> database, final int count, final long start) {
+        for (int i = 0; i < count; i++) {
+            database.add(start + i, "value");
+        }
+    }
+}
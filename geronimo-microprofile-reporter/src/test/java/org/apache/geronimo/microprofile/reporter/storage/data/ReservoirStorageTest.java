@@ -0,0 +1,150 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import static java.util.concurrent.TimeUnit.DAYS;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.DoubleSummaryStatistics;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ReservoirStorageTest {
+    @Test
+    public void recentPointsWin() {
+        final ReservoirStorage<Integer> storage = new ReservoirStorage<>(0.015, 100);
+        final long now = System.currentTimeMillis();
+        for (int i = 0; i < 100; i++) {
+            storage.add(now, i);
+        }
+        final long later = now + HOURS.toMillis(2);
+        for (int i = 0; i < 100; i++) {
+            storage.add(later, i);
+        }
+        final List<InMemoryDatabase.Value<Integer>> snapshot = storage.snapshot();
+        assertEquals(100, snapshot.size());
+        assertTrue(snapshot.stream().allMatch(it -> it.getTimestamp() == later));
+    }
+
+    @Test
+    public void weightedPointsWin() {
+        final ReservoirStorage<Integer> storage = new ReservoirStorage<>(0.015, 100);
+        final long now = System.currentTimeMillis();
+        for (int i = 0; i < 10000; i++) {
+            storage.add(now, i, i % 100 == 0 ? 1e6 : 1);
+        }
+        final List<InMemoryDatabase.Value<Integer>> snapshot = storage.snapshot();
+        assertEquals(100, snapshot.size());
+        assertTrue(snapshot.stream().filter(it -> it.getValue() % 100 == 0).count() >= 90);
+    }
+
+    @Test
+    public void timeQueries() {
+        final ReservoirStorage<Integer> storage = new ReservoirStorage<>(0.015, 10);
+        assertEquals(null, storage.latest());
+        final long now = System.currentTimeMillis();
+        for (int i = 0; i < 100; i++) {
+            storage.add(now + i, i);
+        }
+        assertEquals(99, storage.latest().getValue().intValue());
+
+        final List<InMemoryDatabase.Value<Integer>> all = storage.range(now, now + 100);
+        assertEquals(10, all.size());
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(all.get(i - 1).getTimestamp() <= all.get(i).getTimestamp());
+        }
+        assertEquals(all, storage.snapshot());
+        assertEquals(all.subList(7, 10), storage.last(3));
+
+        final long from = all.get(2).getTimestamp();
+        final long to = all.get(5).getTimestamp();
+        assertEquals(all.subList(2, 6), storage.range(from, to));
+    }
+
+    @Test
+    public void prioritiesDoNotOverflow() { // was the reason of the hourly rescaling
+        final ReservoirStorage<Integer> storage = new ReservoirStorage<>(0.015, 100);
+        final long future = System.currentTimeMillis() + DAYS.toMillis(3650);
+        for (int i = 0; i < 200; i++) {
+            storage.add(future, i);
+        }
+        final List<InMemoryDatabase.Value<Integer>> snapshot = storage.snapshot();
+        assertEquals(100, snapshot.size());
+        assertTrue(snapshot.stream().allMatch(it -> !Double.isInfinite(it.getPriority())));
+    }
+
+    @Test
+    public void prioritiesStayOrderedAcrossHours() { // no rescaling: old priorities are never rewritten
+        final ReservoirStorage<Integer> storage = new ReservoirStorage<>(0.015, 4800);
+        final long start = System.currentTimeMillis();
+        for (int i = 0; i < 100; i++) {
+            storage.add(start + i, i);
+        }
+        final double[] firstHour = storage.range(start, start + 99).stream()
+                .mapToDouble(InMemoryDatabase.Value::getPriority).toArray();
+
+        for (int hour = 1; hour < 48; hour++) {
+            final long timestamp = start + HOURS.toMillis(hour);
+            for (int i = 0; i < 100; i++) {
+                storage.add(timestamp + i, i);
+            }
+        }
+        assertEquals(4800, storage.snapshot().size());
+        assertArrayEquals(firstHour, storage.range(start, start + 99).stream()
+                .mapToDouble(InMemoryDatabase.Value::getPriority).toArray(), 0);
+
+        // an hour adds alpha * 3600 = 54 to the priorities, more than the random part can (-log(2^-53) < 37)
+        double previousMax = Double.NEGATIVE_INFINITY;
+        for (int hour = 0; hour < 48; hour++) {
+            final long timestamp = start + HOURS.toMillis(hour);
+            final DoubleSummaryStatistics priorities = storage.range(timestamp, timestamp + 99).stream()
+                    .mapToDouble(InMemoryDatabase.Value::getPriority).summaryStatistics();
+            assertEquals(100, priorities.getCount());
+            assertFalse(Double.isInfinite(priorities.getMax()) || Double.isNaN(priorities.getMax()));
+            assertTrue("hour " + hour, priorities.getMin() > previousMax);
+            previousMax = priorities.getMax();
+        }
+    }
+
+    @Test
+    public void bytesAndShrink() {
+        final ReservoirStorage<String> storage = new ReservoirStorage<>(0.015, 100);
+        assertEquals(0, storage.bytes());
+        final long now = System.currentTimeMillis();
+        for (int i = 0; i < 500; i++) {
+            storage.add(now + i, "value");
+        }
+        final long point = MemorySize.RESERVOIR_POINT + MemorySize.of("value");
+        assertEquals(100 * point, storage.bytes());
+
+        assertFalse(storage.resize(100));
+        assertTrue(storage.resize(25));
+        assertEquals(25, storage.capacity());
+        assertEquals(25, storage.snapshot().size());
+        assertEquals(25 * point, storage.bytes());
+        for (int i = 0; i < 500; i++) { // stays at the new capacity
+            storage.add(now + 500 + i, "value");
+        }
+        assertEquals(25, storage.snapshot().size());
+        assertEquals(25 * point, storage.bytes());
+    }
+}
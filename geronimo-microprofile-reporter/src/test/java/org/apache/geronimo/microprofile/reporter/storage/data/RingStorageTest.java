@@ -0,0 +1,122 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.LongStream;
+
+import org.junit.Test;
+
+public class RingStorageTest {
+    @Test
+    public void keepsLatestPoints() {
+        final NumericRingStorage<Long> storage = new NumericRingStorage<>(3, new NumericCodec<>(value -> (long) value));
+        LongStream.range(0, 5).forEach(i -> storage.add(i, i * 10.));
+        final List<InMemoryDatabase.Value<Long>> snapshot = storage.snapshot();
+        assertEquals(asList(2L, 3L, 4L), snapshot.stream().map(InMemoryDatabase.Value::getTimestamp).collect(toList()));
+        assertEquals(asList(20L, 30L, 40L), snapshot.stream().map(InMemoryDatabase.Value::getValue).collect(toList()));
+    }
+
+    @Test
+    public void partiallyFilled() {
+        final NumericRingStorage<Double> storage = new NumericRingStorage<>(10, new NumericCodec<>(Double::valueOf));
+        storage.add(1, 1.5);
+        storage.add(2, 2.5);
+        assertEquals(asList(1.5, 2.5), storage.snapshot().stream().map(InMemoryDatabase.Value::getValue).collect(toList()));
+    }
+
+    @Test
+    public void columns() {
+        final RingStorage<double[]> storage = new RingStorage<>(2, new ColumnCodec<double[]>() {
+            @Override
+            public List<String> getColumns() {
+                return asList("a", "b");
+            }
+
+            @Override
+            public double getColumn(final double[] value, final int index) {
+                return value[index];
+            }
+
+            @Override
+            public double[] decode(final double[] row) {
+                return row;
+            }
+        });
+        storage.add(1, new double[]{1, 10});
+        storage.add(2, new double[]{2, 20});
+        storage.add(3, new double[]{3, 30});
+
+        final Points column = storage.points(1);
+        assertEquals(2, column.size());
+        assertEquals(2, column.timestamp(0));
+        assertEquals(20., column.value(0), 0);
+        assertEquals(30., column.value(1), 0);
+        assertEquals(asList(2., 3.), storage.snapshot().stream().map(it -> it.getValue()[0]).collect(toList()));
+    }
+
+    @Test
+    public void timeQueries() {
+        final NumericRingStorage<Long> storage = new NumericRingStorage<>(4, new NumericCodec<>(value -> (long) value));
+        assertEquals(null, storage.latest());
+        LongStream.range(0, 6).forEach(i -> storage.add(i * 10, i));
+        assertEquals(asList(30L, 40L), storage.range(25, 40).stream().map(InMemoryDatabase.Value::getTimestamp).collect(toList()));
+        assertEquals(asList(20L, 30L, 40L, 50L), storage.range(0, 100).stream().map(InMemoryDatabase.Value::getTimestamp).collect(toList()));
+        assertEquals(0, storage.range(41, 49).size());
+        assertEquals(asList(4L, 5L), storage.last(2).stream().map(InMemoryDatabase.Value::getValue).collect(toList()));
+        assertEquals(4, storage.last(10).size());
+        assertEquals(50, storage.latest().getTimestamp());
+
+        final Points points = storage.points(0, 30, 50);
+        assertEquals(3, points.size());
+        assertEquals(30, points.timestamp(0));
+        assertEquals(5., points.value(2), 0);
+    }
+
+    @Test
+    public void concurrentReader() throws InterruptedException {
+        final NumericRingStorage<Double> storage = new NumericRingStorage<>(128, new NumericCodec<>(Double::valueOf));
+        final CountDownLatch done = new CountDownLatch(1);
+        final Thread writer = new Thread(() -> {
+            for (int i = 1; i <= 100000; i++) {
+                storage.add(i, i);
+            }
+            done.countDown();
+        });
+        writer.start();
+        do { // the reader never sees a slot being overwritten
+            final List<InMemoryDatabase.Value<Double>> snapshot = storage.snapshot();
+            assertTrue(snapshot.size() <= 128);
+            for (int i = 0; i < snapshot.size(); i++) {
+                final InMemoryDatabase.Value<Double> value = snapshot.get(i);
+                assertEquals(value.getTimestamp(), value.getValue().longValue());
+                if (i > 0) {
+                    assertEquals(snapshot.get(i - 1).getTimestamp() + 1, value.getTimestamp());
+                }
+            }
+        } while (!done.await(0, MILLISECONDS));
+        assertEquals(128, storage.snapshot().size());
+        assertEquals(100000, storage.latest().getTimestamp());
+    }
+}
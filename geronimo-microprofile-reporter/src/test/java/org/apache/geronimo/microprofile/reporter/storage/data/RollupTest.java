@@ -0,0 +1,74 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import static java.util.concurrent.TimeUnit.DAYS;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class RollupTest {
+    @Test
+    public void aggregates() {
+        final Rollup rollup = new Rollup(1000, 10, 1);
+        rollup.add(1000, 1);
+        rollup.add(1500, 3);
+        rollup.add(1999, 2);
+        rollup.add(2000, 10);
+
+        final Points avg = rollup.points(0, Aggregation.AVG, 0, 5000);
+        assertEquals(2, avg.size());
+        assertEquals(1000, avg.timestamp(0));
+        assertEquals(2., avg.value(0), 0);
+        assertEquals(2000, avg.timestamp(1));
+        assertEquals(10., avg.value(1), 0);
+
+        assertEquals(1., rollup.points(0, Aggregation.MIN, 0, 1999).value(0), 0);
+        assertEquals(3., rollup.points(0, Aggregation.MAX, 0, 1999).value(0), 0);
+        assertEquals(2., rollup.points(0, Aggregation.LAST, 0, 1999).value(0), 0);
+        assertEquals(3., rollup.points(0, Aggregation.COUNT, 0, 1999).value(0), 0);
+    }
+
+    @Test
+    public void retention() {
+        final Rollup rollup = new Rollup(1000, 3, 1);
+        for (int i = 0; i < 10; i++) {
+            rollup.add(i * 1000, i);
+        }
+        rollup.add(1000, 100); // too old, ignored
+        final Points points = rollup.points(0, Aggregation.LAST, 0, 10000);
+        assertEquals(3, points.size());
+        assertEquals(7000, points.timestamp(0));
+        assertEquals(9., points.value(2), 0);
+    }
+
+    @Test
+    public void select() {
+        final Resolutions resolutions = new Resolutions(5000, HOURS.toMillis(60),
+                new long[]{MINUTES.toMillis(1), MINUTES.toMillis(15)}, new int[]{1440, 672}, 1000);
+        final Rollup[] rollups = resolutions.newRollups(1);
+        final long now = System.currentTimeMillis();
+        assertNull(resolutions.select(rollups, now - HOURS.toMillis(1), now));
+        assertSame(rollups[0], resolutions.select(rollups, now - HOURS.toMillis(6), now));
+        assertSame(rollups[1], resolutions.select(rollups, now - DAYS.toMillis(2), now));
+        assertSame(rollups[1], resolutions.select(rollups, now - DAYS.toMillis(300), now));
+    }
+}
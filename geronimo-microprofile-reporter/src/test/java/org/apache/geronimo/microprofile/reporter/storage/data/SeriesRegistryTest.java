@@ -0,0 +1,130 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+public class SeriesRegistryTest {
+    @Test
+    public void createOnce() {
+        final SeriesRegistry<Object> registry = new SeriesRegistry<>("test", 10, -1);
+        final AtomicInteger created = new AtomicInteger();
+        final Object first = registry.getOrCreate("a", name -> created.incrementAndGet());
+        assertSame(first, registry.getOrCreate("a", name -> created.incrementAndGet()));
+        assertSame(first, registry.get("a"));
+        assertEquals(1, created.get());
+        assertNull(registry.get("b"));
+    }
+
+    @Test
+    public void cardinalityLimit() throws InterruptedException {
+        final SeriesRegistry<String> registry = new SeriesRegistry<>("test", 5, -1);
+        final CountDownLatch latch = new CountDownLatch(4);
+        IntStream.range(0, 4).forEach(t -> new Thread(() -> {
+            for (int i = 0; i < 100; i++) {
+                registry.getOrCreate(t + "-" + i, name -> name);
+                registry.names().forEach(name -> {}); // concurrent readers
+            }
+            latch.countDown();
+        }).start());
+        latch.await();
+        assertEquals(5, registry.size());
+        assertEquals(5, registry.names().size());
+        assertEquals(395, registry.getRejected());
+    }
+
+    @Test
+    public void idleEviction() throws InterruptedException {
+        final SeriesRegistry<String> registry = new SeriesRegistry<>("test", 2, 50);
+        registry.getOrCreate("a", name -> name);
+        registry.getOrCreate("b", name -> name);
+        assertNull(registry.getOrCreate("c", name -> name)); // full and nothing idle
+        Thread.sleep(100);
+        registry.getOrCreate("b", name -> name); // still reported
+        assertEquals("c", registry.getOrCreate("c", name -> name)); // replaces the idle "a"
+        assertEquals(asList("b", "c"), registry.names());
+
+        registry.evictIdle(System.currentTimeMillis() + 100);
+        assertEquals(0, registry.size());
+        assertEquals(emptyList(), registry.names());
+    }
+
+    @Test
+    public void removedSeriesAreReleased() {
+        final List<String> released = new ArrayList<>();
+        final SeriesRegistry<String> registry = new SeriesRegistry<>("test", 10, 50, released::add);
+        final List<String> removedNames = new ArrayList<>();
+        registry.addRemovalListener(removedNames::add);
+        registry.getOrCreate("a", name -> name);
+        registry.getOrCreate("b", name -> name);
+        registry.evictIdle(System.currentTimeMillis() + 100);
+        assertEquals(2, released.size());
+
+        registry.getOrCreate("c", name -> name);
+        registry.clear();
+        assertEquals(asList("a", "b", "c"), released.stream().sorted().collect(toList()));
+        assertEquals(asList("a", "b", "c"), removedNames.stream().sorted().collect(toList()));
+    }
+
+    @Test
+    public void concurrentCreationAndEviction() throws InterruptedException {
+        final List<Object> released = new CopyOnWriteArrayList<>();
+        final SeriesRegistry<Object> registry = new SeriesRegistry<>("test", 1000, 60000, released::add);
+        final AtomicInteger created = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(4);
+        IntStream.range(0, 4).forEach(t -> new Thread(() -> {
+            for (int i = 0; i < 200; i++) {
+                registry.getOrCreate(Integer.toString(i), name -> created.incrementAndGet());
+            }
+            latch.countDown();
+        }).start());
+        while (latch.getCount() > 0) { // a new series is not idle
+            registry.evictIdle(System.currentTimeMillis());
+        }
+        latch.await();
+        assertEquals(200, registry.size());
+        assertEquals(200, registry.names().size());
+        assertEquals(200, created.get() - released.size()); // the series losing a creation race are released
+    }
+
+    @Test
+    public void sortedNames() {
+        final SeriesRegistry<String> registry = new SeriesRegistry<>("test", 10, -1);
+        asList("jvm.memory", "app.requests", "jvm.gc.count", "app.Errors", "jvm.threads").forEach(it -> registry.getOrCreate(it, name -> name));
+        assertEquals(asList("app.Errors", "app.requests", "jvm.gc.count", "jvm.memory", "jvm.threads"), registry.names());
+        assertEquals(asList("jvm.gc.count", "jvm.memory", "jvm.threads"), registry.names("jvm.", null));
+        assertEquals(asList("app.Errors", "app.requests"), registry.names("app", ""));
+        assertEquals(emptyList(), registry.names("zzz", null));
+        assertEquals(singletonList("jvm.gc.count"), registry.names(null, "COUNT")); // ignores the case
+        assertEquals(singletonList("jvm.memory"), registry.names("jvm", "mem"));
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import static java.util.Comparator.comparingLong;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// full default bucket (43200 points), the priority map is the layout snapshots were copied from before the time index
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SnapshotBenchmark {
+    private static final int SIZE = 43200;
+
+    private final ReservoirStorage<Double> storage = new ReservoirStorage<>(0.015, SIZE);
+    private final ConcurrentSkipListMap<Double, InMemoryDatabase.Value<Double>> byPriority = new ConcurrentSkipListMap<>();
+
+    @Setup
+    public void setup() {
+        final long now = System.currentTimeMillis();
+        for (int i = 0; i < SIZE; i++) {
+            storage.add(now + i * 5000L, (double) i);
+        }
+        storage.snapshot().forEach(it -> byPriority.put(it.getPriority(), it));
+    }
+
+    @Benchmark
+    public List<InMemoryDatabase.Value<Double>> priorityOrderedSnapshot() {
+        return new LinkedList<>(byPriority.values());
+    }
+
+    @Benchmark
+    public List<InMemoryDatabase.Value<Double>> priorityOrderedSnapshotSortedByTime() {
+        final List<InMemoryDatabase.Value<Double>> values = new ArrayList<>(byPriority.values());
+        values.sort(comparingLong(InMemoryDatabase.Value::getTimestamp));
+        return values;
+    }
+
+    @Benchmark
+    public List<InMemoryDatabase.Value<Double>> timeOrderedSnapshot() {
+        return storage.snapshot();
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SnapshotBenchmark.class.getName()).build()).run();
+    }
+}
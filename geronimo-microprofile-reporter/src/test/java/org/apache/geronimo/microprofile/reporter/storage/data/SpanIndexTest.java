@@ -0,0 +1,147 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Comparator.comparingLong;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Constructor;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.apache.geronimo.microprofile.reporter.storage.plugins.tracing.SpanEntry;
+import org.junit.Test;
+
+public class SpanIndexTest {
+    @Test
+    public void followsEvictions() throws Exception {
+        final SpanIndex index = new SpanIndex();
+        final StripedReservoirStorage<SpanEntry> storage = new StripedReservoirStorage<>(0.015, 50, 4, MemorySize::of, index);
+        final long now = System.currentTimeMillis();
+        for (int i = 0; i < 1000; i++) {
+            storage.add(now + i * 1000L, span("span-" + i, "trace-" + (i % 20), null)); // priorities decay per second
+        }
+
+        final Set<SpanEntry> kept = storage.snapshot().stream().map(InMemoryDatabase.Value::getValue).collect(toSet());
+        assertEquals(kept.size(), index.size());
+        kept.forEach(span -> assertSame(span, index.span(span.getSpanId())));
+        final Set<SpanEntry> indexedTraces = IntStream.range(0, 20)
+                .mapToObj(i -> index.trace("trace-" + i))
+                .flatMap(Collection::stream)
+                .collect(toSet());
+        assertEquals(kept, indexedTraces);
+        assertNull(index.span("span-0")); // evicted by the more recent ones
+    }
+
+    @Test
+    public void shrink() throws Exception {
+        final SpanIndex index = new SpanIndex();
+        final ReservoirStorage<SpanEntry> storage = new ReservoirStorage<>(0.015, 100, MemorySize::of, index);
+        final long now = System.currentTimeMillis();
+        for (int i = 0; i < 100; i++) {
+            storage.add(now + i, span("span-" + i, "trace", null));
+        }
+        assertEquals(100, index.trace("trace").size());
+        storage.resize(20);
+        assertEquals(20, index.size());
+        assertEquals(20, index.trace("trace").size());
+        assertEquals(emptyList(), index.trace("unknown"));
+    }
+
+    @Test
+    public void search() throws Exception {
+        final SpanIndex index = new SpanIndex();
+        final ReservoirStorage<SpanEntry> storage = new ReservoirStorage<>(0.015, 100, MemorySize::of, index);
+        for (int i = 0; i < 100; i++) {
+            final Map<String, Object> tags = new HashMap<>();
+            tags.put("http.status_code", i % 10 == 0 ? 500 : 200);
+            tags.put("http.url", "http://localhost:8080/api/orders/with/a/long/path/" + i);
+            storage.add(1000 + i, span("span-" + i, "trace", null, i % 2 == 0 ? "GET" : "POST", i, tags));
+        }
+        assertEquals(50, index.byName("GET").size());
+        assertEquals(10, index.byTag("http.status_code", "500").size());
+        assertNull(index.byTag("http.url", "http://localhost:8080/api/orders/with/a/long/path/1")); // not indexed
+        assertEquals(emptyList(), index.byName("PUT"));
+
+        final SpanQuery query = new SpanQuery("GET", null, "http.status_code=500", 20L, null, 1000, 1060);
+        assertEquals(asList("span-60", "span-50", "span-40", "span-30", "span-20"), storage.snapshot().stream()
+                .filter(query::matches)
+                .sorted(comparingLong(InMemoryDatabase.Value<SpanEntry>::getTimestamp).reversed())
+                .map(it -> it.getValue().getSpanId())
+                .collect(toList()));
+        assertTrue(new SpanQuery(null, "SERVER", "http.url", null, null, 0, 2000).matches(storage.latest()));
+
+        storage.resize(10);
+        assertEquals(10, index.byName("GET").size() + index.byName("POST").size());
+        assertTrue(index.byTag("http.status_code", "500").size() <= 10);
+    }
+
+    @Test
+    public void page() throws Exception {
+        final SpanIndex index = new SpanIndex();
+        final ReservoirStorage<SpanEntry> storage = new ReservoirStorage<>(0.015, 200, MemorySize::of, index);
+        final InMemoryDatabase<SpanEntry> spans = new InMemoryDatabase<>(storage, "microseconds");
+        for (int i = 0; i < 100; i++) {
+            storage.add(1000 + i, span("span-" + i, "trace", null, i % 2 == 0 ? "GET" : "POST", i, emptyMap()));
+        }
+        assertEquals(100, index.byKind("Server").size());
+        assertEquals(36, index.byDuration(64, Long.MAX_VALUE).size()); // [64, 99]
+        assertNull(index.candidates(new SpanQuery(null, null, null, null, null, 0, 2000)));
+
+        // time window walk
+        assertEquals(asList("span-89", "span-88", "span-87", "span-86", "span-85"), ids(MicroprofileDatabase.findSpans(
+                spans, index, new SpanQuery(null, null, null, null, null, 0, 2000), 10, 5)));
+        // name index
+        assertEquals(asList("span-98", "span-96", "span-94"), ids(MicroprofileDatabase.findSpans(
+                spans, index, new SpanQuery("GET", null, null, null, null, 0, 2000), 0, 3)));
+        // duration index is smaller than the kind one, last page
+        final SpanQuery slow = new SpanQuery(null, "server", null, 64L, null, 0, 2000);
+        assertEquals(36, index.candidates(slow).size());
+        assertEquals(asList("span-69", "span-68", "span-67", "span-66", "span-65", "span-64"), ids(MicroprofileDatabase.findSpans(
+                spans, index, slow, 30, 10)));
+        assertEquals(emptyList(), MicroprofileDatabase.findSpans(spans, index, slow, 40, 10));
+    }
+
+    private static List<String> ids(final List<SpanEntry> spans) {
+        return spans.stream().map(SpanEntry::getSpanId).collect(toList());
+    }
+
+    private static SpanEntry span(final String id, final String traceId, final String parentId) throws Exception {
+        return span(id, traceId, parentId, "test", 1, emptyMap());
+    }
+
+    private static SpanEntry span(final String id, final String traceId, final String parentId, final String name,
+                                  final long duration, final Map<String, Object> tags) throws Exception {
+        final Constructor<SpanEntry> constructor = SpanEntry.class.getDeclaredConstructor(
+                Object.class, Object.class, Object.class, String.class, long.class, long.class, String.class,
+                Map.class, Collection.class);
+        constructor.setAccessible(true);
+        return constructor.newInstance(id, traceId, parentId, name, 0L, duration, "server", tags, emptyList());
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// span ingestion: all the request threads write the same reservoir, run with 1 to 8 threads
+// to compare how the single and the striped reservoirs scale
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SpanIngestionBenchmark {
+    private static final int SIZE = 43200;
+
+    private final ReservoirStorage<Long> single = new ReservoirStorage<>(0.015, SIZE);
+    private final StripedReservoirStorage<Long> striped = new StripedReservoirStorage<>(
+            0.015, SIZE, Runtime.getRuntime().availableProcessors(), MemorySize::of);
+
+    @Benchmark
+    public void single() {
+        final long timestamp = System.currentTimeMillis(); // what InMemoryDatabase.add(value) uses
+        single.add(timestamp, timestamp);
+    }
+
+    @Benchmark
+    public void striped() {
+        final long timestamp = System.currentTimeMillis();
+        striped.add(timestamp, timestamp);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        for (final int threads : new int[]{1, 2, 4, 8}) {
+            new Runner(new OptionsBuilder().include(SpanIngestionBenchmark.class.getName()).threads(threads).build()).run();
+        }
+    }
+}
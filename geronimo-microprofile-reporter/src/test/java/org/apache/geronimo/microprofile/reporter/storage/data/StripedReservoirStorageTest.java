@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class StripedReservoirStorageTest {
+    @Test
+    public void stripes() {
+        assertEquals(1, new StripedReservoirStorage<Integer>(0.015, 10, 1, MemorySize::of).stripes());
+        assertEquals(4, new StripedReservoirStorage<Integer>(0.015, 10, 3, MemorySize::of).stripes());
+        assertEquals(8, new StripedReservoirStorage<Integer>(0.015, 10, 8, MemorySize::of).stripes());
+    }
+
+    @Test
+    public void newestFirst() {
+        final StripedReservoirStorage<Integer> storage = new StripedReservoirStorage<>(0.015, 400, 4, MemorySize::of);
+        for (int i = 0; i < 50; i++) {
+            storage.add(i, i);
+        }
+        final List<Integer> values = new ArrayList<>();
+        storage.newestFirst(10, 19).forEachRemaining(it -> values.add(it.getValue()));
+        assertEquals(asList(19, 18, 17, 16, 15, 14, 13, 12, 11, 10), values);
+        assertFalse(storage.newestFirst(100, 200).hasNext());
+    }
+
+    @Test
+    public void concurrentWriters() throws InterruptedException {
+        final StripedReservoirStorage<Long> storage = new StripedReservoirStorage<>(0.015, 400, 4, MemorySize::of);
+        final AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] writers = new Thread[8];
+        for (int i = 0; i < writers.length; i++) {
+            writers[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int j = 0; j < 1000; j++) {
+                    final long timestamp = clock.incrementAndGet();
+                    storage.add(timestamp, timestamp);
+                }
+            });
+            writers[i].start();
+        }
+        start.countDown();
+        for (final Thread writer : writers) {
+            writer.join();
+        }
+
+        final List<InMemoryDatabase.Value<Long>> snapshot = storage.snapshot();
+        assertTrue(String.valueOf(snapshot.size()), snapshot.size() > 100 && snapshot.size() <= 400);
+        for (int i = 1; i < snapshot.size(); i++) {
+            assertTrue(snapshot.get(i - 1).getTimestamp() <= snapshot.get(i).getTimestamp());
+        }
+        assertEquals(clock.get(), storage.latest().getTimestamp());
+        assertEquals(snapshot.subList(snapshot.size() - 5, snapshot.size()), storage.last(5));
+
+        final long from = snapshot.get(10).getTimestamp();
+        final long to = snapshot.get(20).getTimestamp();
+        assertEquals(snapshot.subList(10, 21), storage.range(from, to));
+        assertEquals(snapshot.size() * (MemorySize.RESERVOIR_POINT + MemorySize.OBJECT), storage.bytes());
+    }
+}
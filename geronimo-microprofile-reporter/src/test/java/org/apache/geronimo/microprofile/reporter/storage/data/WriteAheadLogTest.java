@@ -0,0 +1,133 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.data;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class WriteAheadLogTest {
+    private final Path directory = createDirectory();
+
+    @After
+    public void cleanup() throws IOException {
+        try (final Stream<Path> files = Files.list(directory)) {
+            for (final Path file : files.collect(toList())) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void oneRecordPerCommit() throws IOException {
+        final WriteAheadLog wal = new WriteAheadLog(directory, 0);
+        wal.record("a", 1, new double[]{1});
+        wal.record("b", 1, new double[]{2, 3});
+        wal.commit();
+        wal.record("a", 2, new double[]{4});
+        wal.commit();
+        final List<Path> files = wal.rotate();
+        assertEquals(1, files.size());
+        Files.write(files.get(0), new byte[]{0, 0, 0, 42, 1}, APPEND); // torn write
+
+        final List<WriteAheadLog.Entry> entries = new ArrayList<>();
+        WriteAheadLog.replay(files.get(0), entries::add);
+        assertEquals(asList("a", "b", "a"), entries.stream().map(WriteAheadLog.Entry::getSeries).collect(toList()));
+        assertEquals(asList(1L, 1L, 2L), entries.stream().map(WriteAheadLog.Entry::getTimestamp).collect(toList()));
+        assertArrayEquals(new double[]{2, 3}, entries.get(1).getRow(), 0);
+    }
+
+    @Test
+    public void compactAndReload() {
+        final WriteAheadLog wal = new WriteAheadLog(directory, -1);
+        final WalCompactor compactor = new WalCompactor(directory, 3, wal);
+        final NumericCodec<Long> codec = new NumericCodec<>(value -> (long) value);
+        final JournaledNumericRingStorage<Long> storage = new JournaledNumericRingStorage<>(
+                3, codec, "counter", wal, compactor.load("counter", 1));
+        for (int i = 1; i <= 4; i++) {
+            storage.add(i, i);
+            wal.commit();
+        }
+        compactor.compact();
+        assertTrue(wal.rotate().isEmpty());
+
+        // restart
+        final WriteAheadLog restartedWal = new WriteAheadLog(directory, -1);
+        final WalCompactor restartedCompactor = new WalCompactor(directory, 3, restartedWal);
+        restartedCompactor.compact();
+        final JournaledNumericRingStorage<Long> reloaded = new JournaledNumericRingStorage<>(
+                3, codec, "counter", restartedWal, restartedCompactor.load("counter", 1));
+        assertEquals(asList(2L, 3L, 4L), reloaded.snapshot().stream().map(InMemoryDatabase.Value::getValue).collect(toList()));
+        assertTrue(restartedCompactor.load("missing", 1).isEmpty());
+    }
+
+    @Test
+    public void crashBeforeDeletingCompactedLogs() throws IOException {
+        final WriteAheadLog wal = new WriteAheadLog(directory, -1);
+        final WalCompactor compactor = new WalCompactor(directory, 10, wal);
+        final NumericCodec<Long> codec = new NumericCodec<>(value -> (long) value);
+        final JournaledNumericRingStorage<Long> storage = new JournaledNumericRingStorage<>(
+                10, codec, "counter", wal, compactor.load("counter", 1));
+        for (int i = 1; i <= 3; i++) {
+            storage.add(i, i);
+            wal.commit();
+        }
+        final List<Path> files = wal.rotate();
+        assertEquals(1, files.size());
+        final byte[] log = Files.readAllBytes(files.get(0));
+        compactor.compact();
+        Files.write(files.get(0), log); // the crash happened after the checkpoint, before the delete
+
+        // restart
+        final WriteAheadLog restartedWal = new WriteAheadLog(directory, -1);
+        final WalCompactor restartedCompactor = new WalCompactor(directory, 10, restartedWal);
+        restartedCompactor.compact();
+        assertTrue(restartedWal.rotate().isEmpty());
+        final JournaledNumericRingStorage<Long> reloaded = new JournaledNumericRingStorage<>(
+                10, codec, "counter", restartedWal, restartedCompactor.load("counter", 1));
+        assertEquals(asList(1L, 2L, 3L), reloaded.snapshot().stream().map(InMemoryDatabase.Value::getValue).collect(toList()));
+
+        // the new logs are after the checkpoint even if the compacted ones were all deleted
+        reloaded.add(4, 4);
+        restartedWal.commit();
+        restartedCompactor.compact();
+        assertEquals(asList(1L, 2L, 3L, 4L), restartedCompactor.load("counter", 1).stream()
+                .map(it -> (long) it.getValue()[0]).collect(toList()));
+    }
+
+    private static Path createDirectory() {
+        try {
+            return Files.createTempDirectory("wal");
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
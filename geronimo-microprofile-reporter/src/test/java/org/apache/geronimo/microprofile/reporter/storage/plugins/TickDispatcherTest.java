@@ -0,0 +1,99 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.plugins;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class TickDispatcherTest {
+    @Test
+    public void slowSourceDoesNotDelayTheOthers() throws Exception {
+        final List<String> sources = asList("health", "metrics:counters", Schedule.DEFAULT);
+        final CountDownLatch slow = new CountDownLatch(1);
+        final AtomicInteger healthRuns = new AtomicInteger();
+        final AtomicInteger counterRuns = new AtomicInteger();
+        final AtomicInteger flushes = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final TickDispatcher dispatcher = new TickDispatcher(sources, tick -> CompletableFuture.runAsync(() -> { // like fireAsync
+                if (tick.isDue("health")) {
+                    healthRuns.incrementAndGet();
+                    try {
+                        slow.await(1, SECONDS);
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                if (tick.isDue("metrics:counters")) {
+                    counterRuns.incrementAndGet();
+                }
+            }, executor), flushes::incrementAndGet);
+
+            for (int i = 0; i < 5; i++) { // the poller thread never waits for the health check
+                dispatcher.collect();
+                dispatcher.dispatch(asList("health", "metrics:counters"));
+                awaitEnd(dispatcher, "metrics:counters");
+            }
+            assertEquals(5, counterRuns.get());
+            assertEquals(1, healthRuns.get()); // skipped while running
+            assertTrue(dispatcher.isRunning("health"));
+
+            slow.countDown();
+            awaitEnd(dispatcher, "health");
+            assertTrue(dispatcher.collect() >= 0);
+            assertEquals(6, flushes.get());
+            dispatcher.dispatch(asList("health"));
+            awaitEnd(dispatcher, "health");
+            assertEquals(2, healthRuns.get());
+        } finally {
+            slow.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failureEndsTheRun() throws Exception {
+        final AtomicInteger flushes = new AtomicInteger();
+        final TickDispatcher dispatcher = new TickDispatcher(asList(Schedule.DEFAULT), tick -> {
+            final CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(new IllegalStateException("test"));
+            return future;
+        }, flushes::incrementAndGet);
+        dispatcher.dispatch(asList(Schedule.DEFAULT));
+        assertFalse(dispatcher.isRunning(Schedule.DEFAULT));
+        assertEquals(1, flushes.get());
+    }
+
+    private static void awaitEnd(final TickDispatcher dispatcher, final String source) throws InterruptedException {
+        for (int i = 0; i < 500 && dispatcher.isRunning(source); i++) {
+            Thread.sleep(10);
+        }
+        assertFalse(source, dispatcher.isRunning(source));
+    }
+}
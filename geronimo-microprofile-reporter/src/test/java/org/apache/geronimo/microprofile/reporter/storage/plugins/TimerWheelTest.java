@@ -0,0 +1,72 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.plugins;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class TimerWheelTest {
+    @Test
+    public void resolution() {
+        assertEquals(5000, TimerWheel.resolution(asList(5000L)));
+        assertEquals(1000, TimerWheel.resolution(asList(5000L, 1000L, 30000L)));
+        assertEquals(500, TimerWheel.resolution(asList(5000L, 1500L)));
+        assertEquals(TimerWheel.MIN_RESOLUTION, TimerWheel.resolution(asList(5000L, 1001L)));
+        assertEquals(50, TimerWheel.resolution(asList(50L)));
+    }
+
+    @Test
+    public void cadences() {
+        final Map<String, Long> intervals = new LinkedHashMap<>();
+        intervals.put("counters", 1000L);
+        intervals.put("default", 5000L);
+        intervals.put("health", 30000L);
+        intervals.put("rounded", 2500L);
+        final TimerWheel wheel = new TimerWheel(1000, 8, intervals); // smaller than the periods to test the rounds
+        final List<Collection<String>> ticks = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            ticks.add(wheel.advance());
+        }
+        for (int i = 0; i < 60; i++) {
+            final int seconds = i + 1;
+            final Collection<String> due = ticks.get(i);
+            assertTrue(due.contains("counters"));
+            assertEquals(String.valueOf(seconds), seconds % 5 == 0, due.contains("default"));
+            assertEquals(String.valueOf(seconds), seconds % 30 == 0, due.contains("health"));
+            assertEquals(String.valueOf(seconds), seconds % 3 == 0, due.contains("rounded"));
+        }
+    }
+
+    @Test
+    public void tick() {
+        final Tick tick = new Tick(asList("health", Schedule.DEFAULT), asList("health", "metrics:timers", Schedule.DEFAULT));
+        assertTrue(tick.isDue("health"));
+        assertFalse(tick.isDue("metrics:timers"));
+        assertTrue(tick.isDue("metrics:counters")); // not registered
+        assertFalse(new Tick(asList("health"), asList("health", Schedule.DEFAULT)).isDue("metrics:counters"));
+    }
+}
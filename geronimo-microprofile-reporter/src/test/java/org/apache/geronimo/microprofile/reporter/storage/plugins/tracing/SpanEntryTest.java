@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.plugins.tracing;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.geronimo.microprofile.reporter.storage.data.MemorySize;
+import org.junit.Test;
+
+public class SpanEntryTest {
+    @Test
+    public void identifiers() {
+        assertIds(123L, "00af3c", null);
+        assertIds("42", "ffffffffffffffff", "0");
+        assertIds("0042", "6d3f1c0e-2a9b-4c5e-8f7d-1b2a3c4d5e6f", "AF");
+        assertEquals("123", span(123L, "1", null).getSpanId());
+        assertEquals("-5", span(-5L, "1", null).getSpanId());
+    }
+
+    @Test
+    public void tags() {
+        final SpanDictionary dictionary = new SpanDictionary(10);
+        final Map<String, Object> source = new HashMap<>();
+        source.put(new String("http.method"), new String("GET"));
+        source.put(new String("http.status_code"), 200);
+        final Map<String, Object> first = ArrayMap.copy(source, dictionary);
+        final Map<String, Object> other = new HashMap<>();
+        other.put(new String("http.method"), new String("GET"));
+        final Map<String, Object> second = ArrayMap.copy(other, dictionary);
+        assertEquals(source, first);
+        assertEquals(200, first.get("http.status_code"));
+        assertNull(first.get("missing"));
+        assertSame(key(first, "http.method"), key(second, "http.method"));
+        assertEquals(2, dictionary.size()); // only the keys, values would starve it
+
+        for (int i = 0; i < 100; i++) { // high cardinality values don't fill the dictionary
+            ArrayMap.copy(singletonMap("peer.port", String.valueOf(i)), dictionary);
+        }
+        assertEquals(3, dictionary.size());
+
+        source.put("error", true);
+        assertEquals(2, first.size()); // a copy
+        assertTrue(new SpanEntry(1L, 1L, null, "n", 0, 0, "server", source, emptyList()).isError());
+        try {
+            first.put("other", 1);
+        } catch (final UnsupportedOperationException uoe) {
+            return;
+        }
+        throw new AssertionError("tags should be immutable");
+    }
+
+    @Test
+    public void compact() {
+        final Map<String, Object> tags = new HashMap<>();
+        tags.put("component", "jaxrs");
+        tags.put("http.method", "GET");
+        tags.put("http.status_code", 200);
+        final SpanEntry.LogEntry log = new SpanEntry.LogEntry(10, new HashMap<>(tags));
+        final SpanEntry span = new SpanEntry(1234L, 1230L, 1233L, "GET:/api/orders", 1, 2, "SERVER", tags, singletonList(log));
+        final long previous = MemorySize.OBJECT + 7 * MemorySize.REFERENCE + 2 * Long.BYTES // strings and hash maps
+                + 3 * MemorySize.of("1234") + MemorySize.of("GET:/api/orders") + MemorySize.of("SERVER")
+                + MemorySize.of(tags) + MemorySize.of(singletonList(MemorySize.OBJECT + MemorySize.of(tags)));
+        assertTrue(span.bytes() + " vs " + previous, span.bytes() * 3 < previous * 2);
+    }
+
+    private static String key(final Map<String, Object> map, final String key) {
+        return map.keySet().stream().filter(key::equals).findFirst().orElseThrow(IllegalStateException::new);
+    }
+
+    private static void assertIds(final Object spanId, final Object traceId, final Object parentId) {
+        final SpanEntry span = span(spanId, traceId, parentId);
+        assertEquals(spanId == null ? null : String.valueOf(spanId), span.getSpanId());
+        assertEquals(traceId == null ? null : String.valueOf(traceId), span.getTraceId());
+        assertEquals(parentId == null ? null : String.valueOf(parentId), span.getParentId());
+    }
+
+    private static SpanEntry span(final Object spanId, final Object traceId, final Object parentId) {
+        return new SpanEntry(spanId, traceId, parentId, "span", 0, 0, "server", null, null);
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.plugins.tracing;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class SpanMapperTest {
+    @Test
+    public void generatedAccessors() throws ReflectiveOperationException {
+        assertMapping(true);
+    }
+
+    @Test
+    public void methodHandles() throws ReflectiveOperationException {
+        assertMapping(false);
+    }
+
+    @Test
+    public void inactive() {
+        assertNull(new SpanMapper().map(new FakeSpan()));
+    }
+
+    private void assertMapping(final boolean generate) throws ReflectiveOperationException {
+        final SpanMapper mapper = new SpanMapper();
+        mapper.bind(FakeSpan.class, generate);
+        final SpanEntry entry = mapper.map(new FakeSpan());
+        assertEquals("1", entry.getSpanId());
+        assertEquals("2", entry.getTraceId());
+        assertNull(entry.getParentId());
+        assertEquals("GET /", entry.getName());
+        assertEquals(1234L, entry.getTimestamp());
+        assertEquals(56L, entry.getDuration());
+        assertEquals("server", entry.getKind());
+        assertEquals(singletonMap("http.status", 200), entry.getTags());
+        assertEquals(2, entry.getGetLogs().size());
+        final SpanEntry.LogEntry log = entry.getGetLogs().iterator().next();
+        assertEquals(10L, log.getTimestampMicros());
+        assertEquals(singletonMap("event", "start"), log.getFields());
+    }
+
+    // same getters as SpanImpl
+    public static class FakeSpan {
+        public Object getId() {
+            return 1L;
+        }
+
+        public Object getTraceId() {
+            return 2L;
+        }
+
+        public Object getParentId() {
+            return null;
+        }
+
+        public String getName() {
+            return "GET /";
+        }
+
+        public long getTimestamp() {
+            return 1234;
+        }
+
+        public long getDuration() {
+            return 56;
+        }
+
+        public String getKind() {
+            return "server";
+        }
+
+        public Map<String, Object> getTags() {
+            return singletonMap("http.status", 200);
+        }
+
+        public Collection<Log> getLogs() {
+            return asList(new Log(10, "start"), new Log(20, "end"));
+        }
+
+        public static class Log {
+            private final long timestamp;
+            private final String event;
+
+            private Log(final long timestamp, final String event) {
+                this.timestamp = timestamp;
+                this.event = event;
+            }
+
+            public long getTimestampMicros() {
+                return timestamp;
+            }
+
+            public Map<String, Object> getFields() {
+                return singletonMap("event", event);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.plugins.tracing;
+
+import static java.util.stream.Collectors.toList;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// per span mapping cost: Method.invoke (how spans were mapped before), method handles and generated accessors
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SpanMappingBenchmark {
+    private final SpanMapperTest.FakeSpan span = new SpanMapperTest.FakeSpan();
+    private final SpanMapper generated = new SpanMapper();
+    private final SpanMapper handles = new SpanMapper();
+    private Method[] getters;
+    private Method logGetTimestampMicros;
+    private Method logGetFields;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        generated.bind(SpanMapperTest.FakeSpan.class, true);
+        handles.bind(SpanMapperTest.FakeSpan.class, false);
+        final Class<?> type = SpanMapperTest.FakeSpan.class;
+        getters = new Method[]{
+                type.getMethod("getId"), type.getMethod("getTraceId"), type.getMethod("getParentId"),
+                type.getMethod("getName"), type.getMethod("getTimestamp"), type.getMethod("getDuration"),
+                type.getMethod("getKind"), type.getMethod("getTags"), type.getMethod("getLogs")
+        };
+        logGetTimestampMicros = SpanMapperTest.FakeSpan.Log.class.getMethod("getTimestampMicros");
+        logGetFields = SpanMapperTest.FakeSpan.Log.class.getMethod("getFields");
+    }
+
+    @Benchmark
+    public SpanEntry reflection() throws ReflectiveOperationException {
+        final Collection<SpanEntry.LogEntry> logs = ((Collection<?>) getters[8].invoke(span)).stream().map(log -> {
+            try {
+                return new SpanEntry.LogEntry(Long.class.cast(logGetTimestampMicros.invoke(log)), Map.class.cast(logGetFields.invoke(log)));
+            } catch (final ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }).collect(toList());
+        return new SpanEntry(
+                String.valueOf(getters[0].invoke(span)), String.valueOf(getters[1].invoke(span)),
+                String.valueOf(getters[2].invoke(span)), String.valueOf(getters[3].invoke(span)),
+                Long.class.cast(getters[4].invoke(span)), Long.class.cast(getters[5].invoke(span)),
+                String.valueOf(getters[6].invoke(span)), Map.class.cast(getters[7].invoke(span)), logs);
+    }
+
+    @Benchmark
+    public SpanEntry methodHandles() {
+        return handles.map(span);
+    }
+
+    @Benchmark
+    public SpanEntry generated() {
+        return generated.map(span);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SpanMappingBenchmark.class.getName()).build()).run();
+    }
+}
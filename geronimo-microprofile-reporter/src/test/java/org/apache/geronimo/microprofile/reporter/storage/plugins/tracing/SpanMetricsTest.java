@@ -0,0 +1,81 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.plugins.tracing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SpanMetricsTest {
+    @Test
+    public void histogramBuckets() {
+        for (long value = 0; value < 1_000_000; value += 1 + value / 100) {
+            final int index = LatencyHistogram.index(value);
+            assertTrue(index >= 0 && index < LatencyHistogram.BUCKETS);
+            assertTrue(index >= LatencyHistogram.index(Math.max(0, value - 1)));
+            final long bucketValue = LatencyHistogram.value(index);
+            assertTrue(value + " -> " + bucketValue, Math.abs(bucketValue - value) <= value / 16. + 1);
+        }
+        for (int i = 0; i < 32; i++) {
+            assertEquals(i, LatencyHistogram.value(LatencyHistogram.index(i)));
+        }
+    }
+
+    @Test
+    public void percentiles() {
+        final SpanMetrics.Operation operation = new SpanMetrics.Operation(0);
+        final Random random = new Random(1234);
+        for (int i = 0; i < 10000; i++) { // 1% of slow requests
+            operation.add(i % 100 == 0 ? 500_000 + random.nextInt(1000) : 1000 + random.nextInt(100), i % 50 == 0);
+        }
+        final RedSnapshot snapshot = operation.snapshot(5000);
+        assertEquals(10000, column(snapshot, "count"), 0);
+        assertEquals(2000, column(snapshot, "rate"), 0);
+        assertEquals(200, column(snapshot, "errors"), 0);
+        assertEquals(1050, column(snapshot, "pc50"), 1050 / 16.);
+        assertEquals(1100, column(snapshot, "pc95"), 1100 / 16.);
+        assertEquals(500_500, column(snapshot, "pc999"), 500_500 / 16.);
+        assertTrue(column(snapshot, "max") >= 500_000 && column(snapshot, "max") < 501_000);
+    }
+
+    @Test
+    public void intervals() {
+        final SpanMetrics.Operation operation = new SpanMetrics.Operation(0);
+        for (int i = 0; i < 100; i++) {
+            operation.add(100_000, false);
+        }
+        assertEquals(100_000, column(operation.snapshot(1000), "pc99"), 100_000 / 16.);
+        assertNull(operation.snapshot(2000)); // idle
+        for (int i = 0; i < 10; i++) {
+            operation.add(10, true);
+        }
+        final RedSnapshot snapshot = operation.snapshot(3000);
+        assertEquals(10, column(snapshot, "count"), 0);
+        assertEquals(10, column(snapshot, "rate"), 0);
+        assertEquals(10, column(snapshot, "errors"), 0);
+        assertEquals(10, column(snapshot, "pc99"), 0); // previous interval does not leak
+        assertEquals(10, column(snapshot, "max"), 0);
+    }
+
+    private static double column(final RedSnapshot snapshot, final String name) {
+        return RedSnapshot.CODEC.getColumn(snapshot, RedSnapshot.CODEC.getColumns().indexOf(name));
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.plugins.tracing;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class SpanQueueTest {
+    @Test
+    public void boundedFifo() {
+        final SpanQueue<Integer> queue = new SpanQueue<>(3);
+        assertEquals(4, queue.capacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(4));
+        assertEquals(4, queue.size());
+
+        final List<Integer> drained = new ArrayList<>();
+        assertEquals(2, queue.drain(drained::add, 2));
+        assertTrue(queue.offer(5));
+        assertEquals(3, queue.drain(drained::add, 10));
+        assertEquals(asList(0, 1, 2, 3, 5), drained);
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void concurrentProducers() throws InterruptedException {
+        final SpanQueue<Integer> queue = new SpanQueue<>(64);
+        final AtomicInteger rejected = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(4);
+        for (int p = 0; p < 4; p++) {
+            final int producer = p;
+            new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    if (!queue.offer(producer * 10000 + i)) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        final Set<Integer> consumed = new HashSet<>();
+        final int[] lastPerProducer = {-1, -1, -1, -1};
+        while (done.getCount() > 0 || queue.size() > 0) {
+            queue.drain(value -> {
+                assertTrue(consumed.add(value));
+                final int producer = value / 10000;
+                assertTrue(lastPerProducer[producer] < value % 10000); // per producer order is kept
+                lastPerProducer[producer] = value % 10000;
+            }, 16);
+        }
+        assertEquals(40000, consumed.size() + rejected.get());
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.geronimo.microprofile.reporter.storage.plugins.tracing;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class TailSamplerTest {
+    private final List<SpanEntry> stored = new ArrayList<>();
+    private final List<Double> weights = new ArrayList<>();
+
+    @Test
+    public void slowAndErrorTracesAreBoosted() {
+        final TailSampler sampler = new TailSampler(1000, 500, 0, 100, 1000, this::store);
+        sampler.add(span("1", "slow", "root", 10, emptyMap()), 0);
+        sampler.add(span("2", "error", "root", 10, singletonMap("error", true)), 0);
+        sampler.add(span("3", "fast", "root", 10, emptyMap()), 0);
+        assertEquals(3, sampler.getBuffered());
+        sampler.add(span("4", "slow", null, 600, emptyMap()), 0);
+        sampler.add(span("5", "error", null, 10, emptyMap()), 0);
+        sampler.add(span("6", "fast", null, 10, emptyMap()), 0);
+
+        assertEquals(asList("1", "4", "2", "5"), ids());
+        assertEquals(asList(100., 100., 100., 100.), weights);
+        assertEquals(2, sampler.getBoosted());
+        assertEquals(1, sampler.getSampledOut());
+        assertEquals(0, sampler.getBuffered());
+    }
+
+    @Test
+    public void flushAfterWait() {
+        final TailSampler sampler = new TailSampler(1000, 500, 1, 100, 1000, this::store);
+        sampler.add(span("1", "a", "parent", 10, emptyMap()), 0);
+        sampler.add(span("2", "b", "parent", 10, emptyMap()), 500);
+        sampler.add(span("3", "a", "parent", 10, emptyMap()), 800);
+        sampler.flush(1499);
+        assertEquals(emptyList(), stored);
+        sampler.flush(1500); // trace "a" was updated later
+        assertEquals(asList("2"), ids());
+        sampler.flush(1800);
+        assertEquals(asList("2", "1", "3"), ids());
+        assertEquals(asList(1., 1., 1.), weights);
+    }
+
+    @Test
+    public void lateSpansFollowTheirTrace() {
+        final TailSampler sampler = new TailSampler(1000, 500, 0, 100, 1000, this::store);
+        sampler.add(span("1", "slow", null, 600, emptyMap()), 0);
+        sampler.add(span("2", "slow", "1", 10, emptyMap()), 10);
+        sampler.add(span("3", "fast", null, 10, emptyMap()), 0);
+        sampler.add(span("4", "fast", "3", 10, emptyMap()), 10);
+        sampler.add(span("5", "fast", "3", 600, emptyMap()), 10);
+        assertEquals(asList("1", "2", "5"), ids());
+        assertEquals(0, sampler.getBuffered());
+    }
+
+    @Test
+    public void boundedBuffer() {
+        final TailSampler sampler = new TailSampler(1000, 500, 1, 100, 10, this::store);
+        for (int i = 0; i < 25; i++) {
+            sampler.add(span(Integer.toString(i), "trace" + (i % 5), "parent", 10, emptyMap()), i);
+        }
+        assertTrue(sampler.getBuffered() <= 10);
+        assertEquals(25 - sampler.getBuffered(), stored.size());
+        sampler.flush(Long.MAX_VALUE);
+        assertEquals(25, stored.size());
+    }
+
+    private void store(final SpanEntry span, final double weight) {
+        stored.add(span);
+        weights.add(weight);
+    }
+
+    private List<String> ids() {
+        return stored.stream().map(SpanEntry::getSpanId).collect(toList());
+    }
+
+    private static SpanEntry span(final String id, final String traceId, final String parentId, final long duration,
+                                  final Map<String, Object> tags) {
+        return new SpanEntry(id, traceId, parentId, "span", 0, duration, "SERVER", tags, emptyList());
+    }
+}